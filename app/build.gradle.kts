@@ -1,3 +1,7 @@
+import java.awt.RenderingHints
+import java.awt.image.BufferedImage
+import javax.imageio.ImageIO
+
 plugins {
     alias(libs.plugins.android.application)
 }
@@ -31,6 +35,334 @@ android {
     }
 }
 
+// Tallest screen the sprites are pre-scaled for; smaller screens scale down at runtime
+val spriteMaxScreenHeight = 1440
+
+// Fraction of the screen height each image is drawn at; backgrounds fill it. The task
+// scales the art to these and generates SpriteSizes, which GameSurfaceView draws with.
+val spriteHeightRatios = mapOf(
+    "building" to 0.50,
+    "lamp_post" to 0.30,
+    "jet" to 0.3,
+    "alien" to 0.3,
+    "bird" to 0.2,
+    "tree" to 0.50,
+    "zombie" to 0.30,
+    "ghost_1" to 0.3,
+    "ghost_2" to 0.3,
+    "coin" to 0.06,
+    "city_map" to 1.0,
+    "forest_map" to 1.0,
+    "background" to 1.0,
+)
+
+// Images drawn at a fixed height in pixels on every screen
+val spriteFixedHeights = mapOf(
+    "white_plane" to 192,
+    "red_plane" to 192,
+    "blue_plane" to 192,
+    "yellow_plane" to 192,
+)
+
+/**
+ * Turns the source art in src/main/art into the drawables the app ships
+ *
+ * - Images nothing references (no R.drawable.x or @drawable/x) are left out
+ * - PNGs taller than they are ever drawn (spriteHeightRatios at
+ *   spriteMaxScreenHeight, or spriteFixedHeights) are scaled down to it;
+ *   JPEGs ship as they are, since re-encoding would lose more detail
+ * - PNGs are re-encoded as lossless WebP with cwebp (on the PATH, or set in
+ *   the CWEBP environment variable), keeping whichever file is smaller.
+ *   Without cwebp the PNGs ship as they are, or the task fails if requireWebp
+ * - SpriteIndex is generated with each shipped image's size and whether it
+ *   has transparent pixels, so SpriteLoader can skip reading image headers
+ * - SpriteSizes is generated with the ratios and fixed heights, so the code
+ *   draws each image at the size it was scaled for
+ */
+abstract class PreprocessSpritesTask : DefaultTask() {
+
+    @get:InputDirectory
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val artDir: DirectoryProperty
+
+    // Searched for references to each image
+    @get:InputFiles
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val referenceFiles: ConfigurableFileCollection
+
+    // Fraction of the screen height each image is drawn at
+    @get:Input
+    abstract val heightRatios: MapProperty<String, Double>
+
+    // Pixel height of images drawn at a fixed size
+    @get:Input
+    abstract val fixedHeights: MapProperty<String, Int>
+
+    // Tallest screen heightRatios are scaled for
+    @get:Input
+    abstract val maxScreenHeight: Property<Int>
+
+    // Encoder path and its -version output, so a different cwebp re-runs the task
+    @get:Input
+    @get:Optional
+    abstract val cwebp: Property<String>
+
+    @get:Input
+    @get:Optional
+    abstract val cwebpVersion: Property<String>
+
+    // Fail rather than ship PNGs when cwebp is missing or fails
+    @get:Input
+    abstract val requireWebp: Property<Boolean>
+
+    @get:OutputDirectory
+    abstract val resOutputDir: DirectoryProperty
+
+    @get:OutputDirectory
+    abstract val javaOutputDir: DirectoryProperty
+
+    private class Processed(val width: Int, val height: Int, val hasAlpha: Boolean)
+
+    @TaskAction
+    fun process() {
+        System.setProperty("java.awt.headless", "true")
+
+        val referenced = HashSet<String>()
+        val reference = Regex("""(?:R\.drawable\.|@drawable/)(\w+)""")
+        referenceFiles.asFileTree.matching { include("**/*.java", "**/*.kt", "**/*.xml") }.forEach { file ->
+            reference.findAll(file.readText()).forEach { referenced.add(it.groupValues[1]) }
+        }
+
+        val drawableDir = resOutputDir.get().asFile.resolve("drawable-nodpi")
+        drawableDir.deleteRecursively()
+        drawableDir.mkdirs()
+        val encoder = cwebp.orNull
+        if (encoder == null) {
+            if (requireWebp.get()) {
+                throw GradleException("preprocessSprites: cwebp not found; put it on the PATH or set CWEBP, " +
+                        "or drop -Psprites.requireWebp=true to ship PNGs")
+            }
+            logger.warn("preprocessSprites: WARNING cwebp not found, shipping PNGs; install cwebp (libwebp) for smaller images")
+        } else {
+            logger.info("preprocessSprites: using $encoder (${cwebpVersion.orNull})")
+        }
+
+        val index = sortedMapOf<String, Processed>()
+        var sourceBytes = 0L
+        var shippedBytes = 0L
+        val sources = artDir.get().asFile.listFiles().orEmpty().filter { it.isFile }.sortedBy { it.name }
+        for (source in sources) {
+            val name = source.nameWithoutExtension
+            if (name !in referenced) {
+                logger.lifecycle("preprocessSprites: ${source.name} is not referenced, leaving it out")
+                continue
+            }
+
+            val image = ImageIO.read(source)
+            if (image == null) {
+                // Not something ImageIO reads (e.g. already WebP): ship as is
+                source.copyTo(drawableDir.resolve(source.name), overwrite = true)
+                continue
+            }
+
+            // JPEGs are already lossy: a scaled re-encode costs more detail than scaling at runtime
+            val isJpeg = source.extension.equals("jpg", true) || source.extension.equals("jpeg", true)
+            val maxHeight = heightRatios.get()[name]?.let { Math.round(maxScreenHeight.get() * it).toInt() }
+                ?: fixedHeights.get()[name]
+            val scaled = if (!isJpeg && maxHeight != null && image.height > maxHeight) scaleToHeight(image, maxHeight) else image
+
+            val shipped = when {
+                isJpeg || (scaled === image && encoder == null) -> source.copyTo(drawableDir.resolve(source.name), overwrite = true)
+                else -> writeLossless(scaled, if (scaled === image) source else null, drawableDir, name, encoder)
+            }
+
+            index[name] = Processed(scaled.width, scaled.height, hasTransparentPixel(scaled))
+            sourceBytes += source.length()
+            shippedBytes += shipped.length()
+            if (scaled !== image) {
+                logger.info("preprocessSprites: $name ${image.width}x${image.height} -> ${scaled.width}x${scaled.height}")
+            }
+        }
+        logger.lifecycle("preprocessSprites: ${index.size} images, ${sourceBytes / 1024} KB -> ${shippedBytes / 1024} KB")
+
+        val javaDir = javaOutputDir.get().asFile.resolve("com/oddghosts/foldedflight/game")
+        javaDir.deleteRecursively()
+        javaDir.mkdirs()
+        writeIndex(javaDir, index)
+        writeSizes(javaDir)
+    }
+
+    /**
+     * Halve in steps, then scale the rest of the way, so no source pixels are skipped
+     */
+    private fun scaleToHeight(image: BufferedImage, height: Int): BufferedImage {
+        val width = maxOf(1, Math.round(image.width * height.toFloat() / image.height))
+        val type = if (image.colorModel.hasAlpha()) BufferedImage.TYPE_INT_ARGB else BufferedImage.TYPE_INT_RGB
+        var current = image
+        while (current.height / 2 >= height) {
+            current = draw(current, maxOf(1, current.width / 2), current.height / 2, type)
+        }
+        return draw(current, width, height, type)
+    }
+
+    private fun draw(source: BufferedImage, width: Int, height: Int, type: Int): BufferedImage {
+        val target = BufferedImage(width, height, type)
+        val graphics = target.createGraphics()
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR)
+        graphics.drawImage(source, 0, 0, width, height, null)
+        graphics.dispose()
+        return target
+    }
+
+    private fun hasTransparentPixel(image: BufferedImage): Boolean {
+        if (!image.colorModel.hasAlpha()) return false
+        for (y in 0 until image.height) {
+            for (x in 0 until image.width) {
+                if ((image.getRGB(x, y) ushr 24) != 0xFF) return true
+            }
+        }
+        return false
+    }
+
+    /**
+     * Write image as lossless WebP, or PNG if that's smaller or cwebp is missing
+     * @param original The source PNG when image is unchanged, so it isn't re-encoded
+     */
+    private fun writeLossless(image: BufferedImage, original: File?, dir: File, name: String, cwebp: String?): File {
+        val png = original ?: File(temporaryDir, "$name.png").also { ImageIO.write(image, "png", it) }
+        if (cwebp != null) {
+            val webp = dir.resolve("$name.webp")
+            val process = ProcessBuilder(cwebp, "-quiet", "-lossless", "-exact", "-z", "9", png.path, "-o", webp.path)
+                .redirectErrorStream(true)
+                .start()
+            val output = process.inputStream.bufferedReader().readText()
+            val exitCode = process.waitFor()
+            if (exitCode == 0 && webp.length() in 1 until png.length()) {
+                return webp
+            }
+            webp.delete()
+            if (exitCode != 0) {
+                if (requireWebp.get()) {
+                    throw GradleException("preprocessSprites: cwebp failed for $name: $output")
+                }
+                logger.warn("preprocessSprites: WARNING cwebp failed for $name, shipping PNG: $output")
+            }
+        }
+        return png.copyTo(dir.resolve("$name.png"), overwrite = true)
+    }
+
+    private fun writeIndex(dir: File, index: Map<String, Processed>) {
+        val names = index.keys.toList() // Sorted, for binary search
+        val java = StringBuilder()
+        java.appendLine("// Generated by the preprocessSprites task in app/build.gradle.kts. Do not edit.")
+        java.appendLine("package com.oddghosts.foldedflight.game;")
+        java.appendLine()
+        java.appendLine("import java.util.Arrays;")
+        java.appendLine()
+        java.appendLine("/**")
+        java.appendLine(" * Size and transparency of every image the build shipped, by resource name")
+        java.appendLine(" */")
+        java.appendLine("public final class SpriteIndex {")
+        java.appendLine()
+        java.appendLine("    private static final String[] NAMES = {")
+        names.forEach { java.appendLine("            \"$it\",") }
+        java.appendLine("    };")
+        java.appendLine("    private static final int[] WIDTHS = {${names.joinToString(", ") { index.getValue(it).width.toString() }}};")
+        java.appendLine("    private static final int[] HEIGHTS = {${names.joinToString(", ") { index.getValue(it).height.toString() }}};")
+        java.appendLine("    private static final boolean[] HAS_ALPHA = {${names.joinToString(", ") { index.getValue(it).hasAlpha.toString() }}};")
+        java.appendLine()
+        java.appendLine("    private SpriteIndex() {")
+        java.appendLine("    }")
+        java.appendLine()
+        java.appendLine("    /**")
+        java.appendLine("     * Position of an image by resource name, or -1 if it isn't indexed")
+        java.appendLine("     */")
+        java.appendLine("    public static int indexOf(String name) {")
+        java.appendLine("        int index = Arrays.binarySearch(NAMES, name);")
+        java.appendLine("        return index >= 0 ? index : -1;")
+        java.appendLine("    }")
+        java.appendLine()
+        java.appendLine("    public static int getWidth(int index) {")
+        java.appendLine("        return WIDTHS[index];")
+        java.appendLine("    }")
+        java.appendLine()
+        java.appendLine("    public static int getHeight(int index) {")
+        java.appendLine("        return HEIGHTS[index];")
+        java.appendLine("    }")
+        java.appendLine()
+        java.appendLine("    public static boolean hasAlpha(int index) {")
+        java.appendLine("        return HAS_ALPHA[index];")
+        java.appendLine("    }")
+        java.appendLine("}")
+        dir.resolve("SpriteIndex.java").writeText(java.toString())
+    }
+
+    /**
+     * SpriteSizes: BUILDING = 0.5f (of the screen height), WHITE_PLANE_PX = 192, ...
+     */
+    private fun writeSizes(dir: File) {
+        fun constantName(name: String) = name.uppercase().replace(Regex("[^A-Z0-9]"), "_")
+
+        val java = StringBuilder()
+        java.appendLine("// Generated by the preprocessSprites task in app/build.gradle.kts. Do not edit.")
+        java.appendLine("package com.oddghosts.foldedflight.game;")
+        java.appendLine()
+        java.appendLine("/**")
+        java.appendLine(" * Size each image is drawn at, which the shipped art is scaled for")
+        java.appendLine(" * Plain names are fractions of the screen height; _PX names are pixels.")
+        java.appendLine(" */")
+        java.appendLine("public final class SpriteSizes {")
+        java.appendLine()
+        heightRatios.get().toSortedMap().forEach { (name, ratio) ->
+            java.appendLine("    public static final float ${constantName(name)} = ${ratio}f;")
+        }
+        java.appendLine()
+        fixedHeights.get().toSortedMap().forEach { (name, height) ->
+            java.appendLine("    public static final int ${constantName(name)}_PX = $height;")
+        }
+        java.appendLine()
+        java.appendLine("    private SpriteSizes() {")
+        java.appendLine("    }")
+        java.appendLine("}")
+        dir.resolve("SpriteSizes.java").writeText(java.toString())
+    }
+}
+
+// cwebp from the CWEBP environment variable or the PATH, if it can run
+val cwebpPath: Provider<String> = providers.environmentVariable("CWEBP")
+    .filter { File(it).canExecute() }
+    .orElse(providers.environmentVariable("PATH").map { path ->
+        val executable = if (System.getProperty("os.name").startsWith("Windows")) "cwebp.exe" else "cwebp"
+        path.split(File.pathSeparator).map { File(it, executable) }.firstOrNull { it.canExecute() }?.path.orEmpty()
+    }.filter { it.isNotEmpty() })
+
+// Every variant packages the processed art and compiles the generated index
+androidComponents {
+    onVariants { variant ->
+        val taskName = "preprocess${variant.name.replaceFirstChar { it.uppercase() }}Sprites"
+        val preprocessSprites = tasks.register<PreprocessSpritesTask>(taskName) {
+            group = "build"
+            description = "Scales, re-encodes and indexes the art in src/main/art"
+            artDir.set(layout.projectDirectory.dir("src/main/art"))
+            referenceFiles.from("src/main/java", "src/main/res", "src/main/AndroidManifest.xml")
+            heightRatios.set(spriteHeightRatios)
+            fixedHeights.set(spriteFixedHeights)
+            maxScreenHeight.set(spriteMaxScreenHeight)
+            cwebp.set(cwebpPath)
+            cwebpVersion.set(cwebpPath.flatMap { path ->
+                providers.exec {
+                    commandLine(path, "-version")
+                    isIgnoreExitValue = true
+                }.standardOutput.asText.map { it.trim() }
+            })
+            // Without cwebp the PNGs ship, with a warning; CI can pass -Psprites.requireWebp=true to fail instead
+            requireWebp.set(providers.gradleProperty("sprites.requireWebp").map { it.toBoolean() }.orElse(false))
+        }
+        variant.sources.res?.addGeneratedSourceDirectory(preprocessSprites, PreprocessSpritesTask::resOutputDir)
+        variant.sources.java?.addGeneratedSourceDirectory(preprocessSprites, PreprocessSpritesTask::javaOutputDir)
+    }
+}
+
 dependencies {
 
     implementation(libs.appcompat)
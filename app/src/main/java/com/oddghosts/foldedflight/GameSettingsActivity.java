@@ -1,14 +1,23 @@
 package com.oddghosts.foldedflight;
 
+import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
 import android.os.Bundle;
+import android.view.Display;
 import android.view.View;
 import androidx.appcompat.app.AppCompatActivity;
+import com.oddghosts.foldedflight.game.FrameRateController;
+import com.oddghosts.foldedflight.game.GameSurfaceView;
 import com.oddghosts.foldedflight.ui.PixelCard;
 import com.oddghosts.foldedflight.ui.PixelButton;
 
 public class GameSettingsActivity extends AppCompatActivity {
 
+    private static final String PREFS_NAME = "FoldedFlightPrefs";
+    private static final String FRAME_RATE_KEY = "frame_rate_override";
+
     // Cards
     private PixelCard cityCard;
     private PixelCard forestCard;
@@ -21,11 +30,13 @@ public class GameSettingsActivity extends AppCompatActivity {
     // Buttons
     private PixelButton startGameButton;
     private PixelButton backButton;
+    private PixelButton frameRateButton;
 
     // Selected settings
     private String selectedMap = "CITY";
     private String selectedPlaneColor = "WHITE";
     private String selectedDifficulty = "NORMAL";
+    private int selectedFrameRate = FrameRateController.AUTO;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -43,6 +54,7 @@ public class GameSettingsActivity extends AppCompatActivity {
         difficultyHard = findViewById(R.id.difficultyHard);
         startGameButton = findViewById(R.id.startGameButton);
         backButton = findViewById(R.id.backButton);
+        frameRateButton = findViewById(R.id.frameRateButton);
 
         // Setup map cards
         setupMapCards();
@@ -55,6 +67,9 @@ public class GameSettingsActivity extends AppCompatActivity {
 
         // Setup buttons
         setupButtons();
+
+        // Setup frame rate override
+        setupFrameRateButton();
     }
 
     private void setupMapCards() {
@@ -205,10 +220,80 @@ public class GameSettingsActivity extends AppCompatActivity {
         });
     }
 
+    private void setupFrameRateButton() {
+        frameRateButton.setCustomFont(R.font.pixelboy);
+        frameRateButton.setCustomTextSize(40f);
+        frameRateButton.setButtonBackgroundColor(0xFF9E9E9E);
+
+        // AUTO followed by every rate this display can show
+        int[] targets = FrameRateController.getSupportedTargets(getCurrentDisplay());
+        final int[] options = new int[targets.length + 1];
+        options[0] = FrameRateController.AUTO;
+        System.arraycopy(targets, 0, options, 1, targets.length);
+
+        selectedFrameRate = getFrameRateOverride(this);
+        updateFrameRateText();
+
+        // Each tap cycles to the next option
+        frameRateButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                int next = 0;
+                for (int i = 0; i < options.length; i++) {
+                    if (options[i] == selectedFrameRate) {
+                        next = (i + 1) % options.length;
+                        break;
+                    }
+                }
+                selectedFrameRate = options[next];
+                saveFrameRateOverride(GameSettingsActivity.this, selectedFrameRate);
+                updateFrameRateText();
+            }
+        });
+    }
+
+    /**
+     * The display this activity is shown on
+     */
+    @SuppressWarnings("deprecation")
+    private Display getCurrentDisplay() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            return getDisplay();
+        }
+        return getWindowManager().getDefaultDisplay();
+    }
+
+    private void updateFrameRateText() {
+        if (selectedFrameRate == FrameRateController.AUTO) {
+            frameRateButton.setText(R.string.frame_rate_auto);
+        } else {
+            frameRateButton.setText(getString(R.string.frame_rate_fixed, selectedFrameRate));
+        }
+    }
+
+    /**
+     * Get the frame rate override for this device, or FrameRateController.AUTO
+     */
+    public static int getFrameRateOverride(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        return prefs.getInt(FRAME_RATE_KEY, FrameRateController.AUTO);
+    }
+
+    /**
+     * Save the frame rate override for this device
+     */
+    public static void saveFrameRateOverride(Context context, int fps) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        prefs.edit().putInt(FRAME_RATE_KEY, fps).apply();
+    }
+
     /**
      * Start the game with selected settings
      */
     private void startGame() {
+        // Decode the game's sprites while the next screen opens
+        GameSurfaceView.preloadAssets(this, selectedMap, selectedPlaneColor);
+
         // Start the GameplayActivity with selected settings
         Intent intent = new Intent(this, GameplayActivity.class);
         intent.putExtra("MAP", selectedMap);
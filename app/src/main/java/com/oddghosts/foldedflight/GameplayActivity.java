@@ -91,6 +91,9 @@ public class GameplayActivity extends AppCompatActivity implements GameSurfaceVi
         // Set game settings (background automatically scales to fit height)
         gameSurfaceView.setGameSettings(selectedMap, selectedPlaneColor, difficulty);
 
+        // Frame rate override chosen in settings for this device
+        gameSurfaceView.setFrameRateOverride(GameSettingsActivity.getFrameRateOverride(this));
+
         // Set game over listener to save scores
         gameSurfaceView.setGameOverListener(this);
 
@@ -108,6 +111,15 @@ public class GameplayActivity extends AppCompatActivity implements GameSurfaceVi
             }
         });
 
+        // Long press the timer to toggle the performance overlay
+        timerText.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                gameSurfaceView.setPerformanceHudEnabled(!gameSurfaceView.isPerformanceHudEnabled());
+                return true;
+            }
+        });
+
         // Move Up button listener - hold to move up
         moveUpButton.setOnTouchListener(new View.OnTouchListener() {
             @Override
@@ -341,6 +353,8 @@ public class GameplayActivity extends AppCompatActivity implements GameSurfaceVi
         timerHandler.removeCallbacks(timerRunnable);
         if (gameSurfaceView != null) {
             gameSurfaceView.stopGame();
+            // Next game (same or another map) decodes into these buffers
+            gameSurfaceView.releaseBitmaps();
         }
     }
 
@@ -0,0 +1,194 @@
+package com.oddghosts.foldedflight.game;
+
+import android.os.SystemClock;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes and packs a sprite atlas on a small worker pool, off the UI thread
+ *
+ * The settings screen starts one as soon as the player confirms the map
+ * and plane, so decoding overlaps opening the game screen.
+ * The surface then claims it by key; if the key doesn't match (e.g. the
+ * screen height guess was wrong) a fresh load starts instead. Either way
+ * the surface learns about progress and completion through a Listener.
+ * A finished atlas is saved as a SpritePack, and the next load of the same
+ * key maps that instead of decoding anything.
+ */
+final class AssetPreloader {
+
+    private static final int MAX_THREADS = 4;
+
+    // Started ahead of the game screen and not yet claimed
+    private static AssetPreloader pending;
+
+    /**
+     * Called on worker threads
+     */
+    interface Listener {
+        void onProgress(int loaded, int total);
+
+        /**
+         * @param atlas The packed sprites, or null if loading failed
+         */
+        void onLoaded(SpriteAtlas atlas);
+    }
+
+    private final String key;
+    private final SpriteAtlas.Builder builder;
+    private final SpriteLoader loader;
+    private final SpriteDiskCache diskCache; // null to always decode
+
+    // Guarded by this
+    private Listener listener;
+    private int loaded = 0;
+    private boolean finished = false;
+    private SpriteAtlas atlas;
+
+    private AssetPreloader(String key, SpriteAtlas.Builder builder, SpriteLoader loader, SpriteDiskCache diskCache) {
+        this.key = key;
+        this.builder = builder;
+        this.loader = loader;
+        this.diskCache = diskCache;
+        if (diskCache != null) {
+            // The whole atlas is saved as a pack; single sprite entries would store it twice
+            loader.setSaveToDiskCache(false);
+        }
+    }
+
+    /**
+     * Start loading ahead of time, unless the same key is already loading
+     */
+    static synchronized void preload(String key, SpriteAtlas.Builder builder, SpriteLoader loader,
+                                     SpriteDiskCache diskCache) {
+        if (pending != null && pending.key.equals(key)) return;
+
+        // A superseded preload finishes on its own and is dropped
+        pending = new AssetPreloader(key, builder, loader, diskCache);
+        pending.start();
+    }
+
+    /**
+     * Claim the preload for key, or start loading it now if there is none
+     */
+    static synchronized AssetPreloader obtain(String key, SpriteAtlas.Builder builder, SpriteLoader loader,
+                                              SpriteDiskCache diskCache) {
+        AssetPreloader preloader = pending;
+        pending = null;
+        if (preloader != null && preloader.key.equals(key)) {
+            return preloader;
+        }
+        if (preloader != null) {
+            android.util.Log.i("AssetPreloader", "Preloaded " + preloader.key + " but need " + key);
+        }
+
+        preloader = new AssetPreloader(key, builder, loader, diskCache);
+        preloader.start();
+        return preloader;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Set the listener; it is told the current progress, and the result if already done
+     */
+    void setListener(Listener listener) {
+        int loadedNow;
+        boolean finishedNow;
+        SpriteAtlas atlasNow;
+        synchronized (this) {
+            this.listener = listener;
+            loadedNow = loaded;
+            finishedNow = finished;
+            atlasNow = atlas;
+        }
+
+        listener.onProgress(loadedNow, builder.getSpriteCount());
+        if (finishedNow) {
+            listener.onLoaded(atlasNow);
+        }
+    }
+
+    private void start() {
+        Thread coordinator = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        }, "AssetPreloader");
+        coordinator.start();
+    }
+
+    private void load() {
+        long start = SystemClock.elapsedRealtime();
+
+        // Mapped from the last load of this key: no decoding at all
+        SpriteAtlas packed = diskCache != null ? diskCache.readPack(key) : null;
+        if (packed != null) {
+            android.util.Log.i("AssetPreloader", "Loaded " + key + " from sprite pack in "
+                    + (SystemClock.elapsedRealtime() - start) + " ms");
+            finish(packed);
+            return;
+        }
+
+        // Leave a core for the UI and render threads
+        int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "AssetDecoder-" + threadNumber.incrementAndGet());
+            }
+        });
+
+        SpriteAtlas result = null;
+        try {
+            result = builder.build(pool, new SpriteAtlas.Builder.ProgressListener() {
+                @Override
+                public void onSpriteDecoded(int decoded, int total) {
+                    Listener current;
+                    synchronized (AssetPreloader.this) {
+                        loaded = decoded;
+                        current = listener;
+                    }
+                    if (current != null) {
+                        current.onProgress(decoded, total);
+                    }
+                }
+            });
+        } catch (RuntimeException | OutOfMemoryError e) {
+            android.util.Log.e("AssetPreloader", "Could not load sprites for " + key, e);
+        } finally {
+            pool.shutdown();
+        }
+
+        android.util.Log.i("AssetPreloader", "Loaded " + key + " on " + threads + " thread(s) in "
+                + (SystemClock.elapsedRealtime() - start) + " ms (loading " + loader.getSpriteCount()
+                + " sprites took " + loader.getTotalDecodeNanos() / 1000000 + " ms, "
+                + loader.getTotalBytes() / 1024 + " KB, " + loader.getDiskHitCount() + " from disk cache)");
+
+        // Only a complete atlas is worth saving; the game must not have it yet, as it may recycle the pages
+        if (result != null && diskCache != null && result.getRegions().size() == builder.getSpriteCount()) {
+            diskCache.writePack(key, result);
+        }
+        finish(result);
+    }
+
+    private void finish(SpriteAtlas result) {
+        Listener current;
+        synchronized (this) {
+            loaded = builder.getSpriteCount();
+            atlas = result;
+            finished = true;
+            current = listener;
+        }
+        if (current != null) {
+            current.onLoaded(result);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.oddghosts.foldedflight.game;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * Text drawn as blits from a pre-rendered glyph atlas
+ *
+ * Each glyph is rasterized once into a fill atlas, and its outline (or
+ * shadow, if the fill paint has one) into a second atlas with the same
+ * layout. Drawing a string blits every outline first and every fill after,
+ * like drawing the whole string's stroke and then its fill, so outlines
+ * never cover a neighbouring glyph. There is no text layout and no
+ * allocation per draw. There is no kerning,
+ * which the pixel fonts we use don't need. Characters outside the baked
+ * charset are skipped.
+ */
+public class BitmapFont {
+
+    public static final String PRINTABLE_ASCII;
+    public static final String UPPERCASE = " ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!?.,:;'-/|%";
+
+    static {
+        StringBuilder ascii = new StringBuilder();
+        for (char c = 32; c < 127; c++) {
+            ascii.append(c);
+        }
+        PRINTABLE_ASCII = ascii.toString();
+    }
+
+    private static final int FIRST_CHAR = 32;
+    private static final int LAST_CHAR = 126;
+    private static final int MAX_ATLAS_WIDTH = 1024;
+
+    private final Bitmap atlas;
+    private final Bitmap underlay; // Outlines or shadows, drawn under every fill; null if neither
+    private final Rect[] glyphBounds = new Rect[LAST_CHAR - FIRST_CHAR + 1]; // null = not baked
+    private final float[] advances = new float[LAST_CHAR - FIRST_CHAR + 1];
+    private final int padding;     // Space around each glyph for the outline and shadow
+    private final float ascent;    // Negative, from the baseline to the top of a cell
+    private final int cellHeight;
+    private final float spaceAdvance;
+
+    // Scratch, render thread only
+    private final RectF destination = new RectF();
+    private final char[] digits = new char[11];
+
+    /**
+     * Bake glyphs for every character in charset
+     * @param fillPaint Typeface, size and color of the text; a shadow layer on it is baked too
+     * @param outlinePaint Stroke drawn under the fills, or null for no outline
+     * @param shadowExtent How far the fill's shadow reaches (radius plus offset), or 0
+     */
+    public BitmapFont(Paint fillPaint, Paint outlinePaint, float shadowExtent, String charset) {
+        Paint fill = new Paint(fillPaint);
+        fill.setTextAlign(Paint.Align.LEFT);
+        Paint outline = null;
+        if (outlinePaint != null) {
+            outline = new Paint(outlinePaint);
+            outline.setTextAlign(Paint.Align.LEFT);
+            outline.setStyle(Paint.Style.STROKE);
+        }
+
+        // Room for half the stroke on each side and the whole shadow
+        float extra = outline != null ? outline.getStrokeWidth() / 2f : 0f;
+        extra += shadowExtent;
+        padding = (int) Math.ceil(extra) + 1;
+
+        Paint.FontMetrics metrics = fill.getFontMetrics();
+        ascent = metrics.ascent;
+        cellHeight = (int) Math.ceil(metrics.descent - metrics.ascent) + padding * 2;
+        spaceAdvance = fill.measureText(" ");
+
+        // Lay glyphs out in rows
+        float[] width = new float[1];
+        int x = 0;
+        int y = 0;
+        int atlasWidth = 0;
+        for (int i = 0; i < charset.length(); i++) {
+            char c = charset.charAt(i);
+            if (c <= FIRST_CHAR || c > LAST_CHAR || glyphBounds[c - FIRST_CHAR] != null) continue; // Space just advances
+
+            fill.getTextWidths(charset, i, i + 1, width);
+            int cellWidth = (int) Math.ceil(width[0]) + padding * 2;
+            if (x + cellWidth > MAX_ATLAS_WIDTH) {
+                x = 0;
+                y += cellHeight;
+            }
+            glyphBounds[c - FIRST_CHAR] = new Rect(x, y, x + cellWidth, y + cellHeight);
+            advances[c - FIRST_CHAR] = width[0];
+            x += cellWidth;
+            atlasWidth = Math.max(atlasWidth, x);
+        }
+
+        // Fills without their shadow; the shadow goes in the underlay
+        Paint plainFill = new Paint(fill);
+        plainFill.clearShadowLayer();
+        atlas = Bitmap.createBitmap(Math.max(1, atlasWidth), y + cellHeight, Bitmap.Config.ARGB_8888);
+        bakeGlyphs(new Canvas(atlas), plainFill);
+
+        if (outline != null) {
+            underlay = Bitmap.createBitmap(atlas.getWidth(), atlas.getHeight(), Bitmap.Config.ARGB_8888);
+            bakeGlyphs(new Canvas(underlay), outline);
+        } else if (shadowExtent > 0) {
+            // Text with its shadow, then the text cut back out, leaves the shadow alone
+            underlay = Bitmap.createBitmap(atlas.getWidth(), atlas.getHeight(), Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(underlay);
+            bakeGlyphs(canvas, fill);
+            Paint cutOut = new Paint(plainFill);
+            cutOut.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_OUT));
+            bakeGlyphs(canvas, cutOut);
+        } else {
+            underlay = null;
+        }
+    }
+
+    private void bakeGlyphs(Canvas canvas, Paint paint) {
+        for (int i = 0; i < glyphBounds.length; i++) {
+            Rect bounds = glyphBounds[i];
+            if (bounds == null) continue;
+
+            String glyph = String.valueOf((char) (i + FIRST_CHAR));
+            float baseline = bounds.top + padding - ascent;
+            canvas.drawText(glyph, bounds.left + padding, baseline, paint);
+        }
+    }
+
+    /**
+     * Width of text, in pixels
+     */
+    public float measure(CharSequence text) {
+        float width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            width += advanceOf(text.charAt(i));
+        }
+        return width;
+    }
+
+    /**
+     * Draw text with its baseline at y
+     */
+    public void draw(Canvas canvas, CharSequence text, float x, float y, Paint.Align align) {
+        float startX = alignedStart(measure(text), x, align);
+        if (underlay != null) {
+            drawRun(canvas, underlay, text, startX, y);
+        }
+        drawRun(canvas, atlas, text, startX, y);
+    }
+
+    /**
+     * Draw prefix followed by value, e.g. "Coins: " and 12
+     */
+    public void draw(Canvas canvas, CharSequence prefix, int value, float x, float y, Paint.Align align) {
+        int start = formatInt(value);
+
+        float width = measure(prefix);
+        for (int i = start; i < digits.length; i++) {
+            width += advanceOf(digits[i]);
+        }
+
+        float startX = alignedStart(width, x, align);
+        if (underlay != null) {
+            drawRun(canvas, underlay, prefix, start, startX, y);
+        }
+        drawRun(canvas, atlas, prefix, start, startX, y);
+    }
+
+    /**
+     * Grow bounds to cover text as draw() would place it, outline included
+     */
+    public void addBounds(Rect bounds, CharSequence text, float x, float y, Paint.Align align) {
+        float width = measure(text);
+        int left = Math.round(alignedStart(width, x, align)) - padding;
+        int top = Math.round(y + ascent) - padding;
+        bounds.union(left, top, left + (int) Math.ceil(width) + padding * 2, top + cellHeight);
+    }
+
+    /**
+     * Bytes held by the glyph atlas
+     */
+    public int getByteCount() {
+        return atlas.getAllocationByteCount() + (underlay != null ? underlay.getAllocationByteCount() : 0);
+    }
+
+    private float alignedStart(float width, float x, Paint.Align align) {
+        if (align == Paint.Align.CENTER) return x - width / 2f;
+        if (align == Paint.Align.RIGHT) return x - width;
+        return x;
+    }
+
+    private void drawRun(Canvas canvas, Bitmap glyphs, CharSequence text, float penX, float baseline) {
+        for (int i = 0; i < text.length(); i++) {
+            penX = drawGlyph(canvas, glyphs, text.charAt(i), penX, baseline);
+        }
+    }
+
+    /**
+     * Draw prefix followed by digits[start..]
+     */
+    private void drawRun(Canvas canvas, Bitmap glyphs, CharSequence prefix, int start, float penX, float baseline) {
+        for (int i = 0; i < prefix.length(); i++) {
+            penX = drawGlyph(canvas, glyphs, prefix.charAt(i), penX, baseline);
+        }
+        for (int i = start; i < digits.length; i++) {
+            penX = drawGlyph(canvas, glyphs, digits[i], penX, baseline);
+        }
+    }
+
+    private float drawGlyph(Canvas canvas, Bitmap glyphs, char c, float penX, float baseline) {
+        if (c < FIRST_CHAR || c > LAST_CHAR || glyphBounds[c - FIRST_CHAR] == null) {
+            return penX + (c == ' ' ? spaceAdvance : 0f);
+        }
+
+        Rect bounds = glyphBounds[c - FIRST_CHAR];
+        // Whole pixels keep blits 1:1 so the glyphs stay sharp
+        float left = Math.round(penX) - padding;
+        float top = Math.round(baseline + ascent) - padding;
+        destination.set(left, top, left + bounds.width(), top + bounds.height());
+        canvas.drawBitmap(glyphs, bounds, destination, null);
+        return penX + advances[c - FIRST_CHAR];
+    }
+
+    private float advanceOf(char c) {
+        if (c < FIRST_CHAR || c > LAST_CHAR || glyphBounds[c - FIRST_CHAR] == null) {
+            return c == ' ' ? spaceAdvance : 0f;
+        }
+        return advances[c - FIRST_CHAR];
+    }
+
+    /**
+     * Write value's digits right-aligned into the digits buffer
+     * @return Index of the first character
+     */
+    private int formatInt(int value) {
+        int index = digits.length;
+        long remaining = Math.abs((long) value);
+        do {
+            digits[--index] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        if (value < 0) {
+            digits[--index] = '-';
+        }
+        return index;
+    }
+}
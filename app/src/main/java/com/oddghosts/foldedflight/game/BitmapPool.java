@@ -0,0 +1,176 @@
+package com.oddghosts.foldedflight.game;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mutable bitmaps kept for reuse instead of being left to the GC
+ *
+ * Sprite pages, decode buffers and background tiles are large, and a
+ * restart or a new game used to drop one full set and allocate the next,
+ * which shows up as large-object GC pauses. Released bitmaps are bucketed
+ * by config and allocation size; acquire() reconfigures the smallest one
+ * that fits, and decoders pass one in as BitmapFactory.Options.inBitmap.
+ * The pool holds at most an eighth of the heap, dropping the oldest first.
+ *
+ * Shared by every game screen in the process. Thread safe.
+ */
+final class BitmapPool {
+
+    // A buffer more than this many times the size asked for is left for a bigger request
+    private static final int MAX_WASTE_FACTOR = 4;
+
+    private static final BitmapPool SHARED = new BitmapPool(Runtime.getRuntime().maxMemory() / 8);
+
+    private final long maxBytes;
+    private final Map<Bitmap.Config, TreeMap<Integer, List<Bitmap>>> buckets = new HashMap<>();
+    private final ArrayDeque<Bitmap> releaseOrder = new ArrayDeque<>(); // Oldest first
+    private long pooledBytes = 0;
+
+    // Stats since the process started
+    private int hits = 0;
+    private int misses = 0;
+
+    private BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    static BitmapPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * A mutable, cleared bitmap of exactly this size and config, reused if one fits
+     */
+    Bitmap acquire(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = takeFitting(width, height, config);
+        if (bitmap != null) {
+            bitmap.reconfigure(width, height, config);
+            bitmap.eraseColor(0);
+            return bitmap;
+        }
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * A buffer big enough to decode a width x height image into, for
+     * BitmapFactory.Options.inBitmap, or null if the pool has none
+     * Give it back with release() if the decode doesn't use it.
+     */
+    Bitmap acquireForDecode(int width, int height, Bitmap.Config config) {
+        return takeFitting(width, height, config);
+    }
+
+    /**
+     * Keep a bitmap for reuse; the caller must not draw it again
+     * Immutable or recycled bitmaps are ignored.
+     */
+    synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() == null) return;
+        if (releaseOrder.contains(bitmap)) return;
+
+        int bytes = bitmap.getAllocationByteCount();
+        if (bytes > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+
+        TreeMap<Integer, List<Bitmap>> sizes = buckets.get(bitmap.getConfig());
+        if (sizes == null) {
+            sizes = new TreeMap<>();
+            buckets.put(bitmap.getConfig(), sizes);
+        }
+        List<Bitmap> bucket = sizes.get(bytes);
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            sizes.put(bytes, bucket);
+        }
+        bucket.add(bitmap);
+        releaseOrder.addLast(bitmap);
+        pooledBytes += bytes;
+
+        // Over budget: drop the buffers released longest ago
+        while (pooledBytes > maxBytes && !releaseOrder.isEmpty()) {
+            Bitmap oldest = releaseOrder.peekFirst();
+            remove(oldest);
+            oldest.recycle();
+        }
+    }
+
+    /**
+     * Drop every pooled bitmap, e.g. when the system is low on memory
+     */
+    synchronized void clear() {
+        for (Bitmap bitmap : releaseOrder) {
+            bitmap.recycle();
+        }
+        buckets.clear();
+        releaseOrder.clear();
+        pooledBytes = 0;
+    }
+
+    synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    synchronized int getHitCount() {
+        return hits;
+    }
+
+    synchronized int getMissCount() {
+        return misses;
+    }
+
+    private synchronized Bitmap takeFitting(int width, int height, Bitmap.Config config) {
+        long needed = (long) width * height * bytesPerPixel(config);
+        TreeMap<Integer, List<Bitmap>> sizes = buckets.get(config);
+        if (sizes != null && needed <= Integer.MAX_VALUE) {
+            Map.Entry<Integer, List<Bitmap>> entry = sizes.ceilingEntry((int) needed);
+            if (entry != null && entry.getKey() <= Math.max(needed, 1) * MAX_WASTE_FACTOR) {
+                Bitmap bitmap = entry.getValue().get(entry.getValue().size() - 1);
+                remove(bitmap);
+                hits++;
+                return bitmap;
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    private void remove(Bitmap bitmap) {
+        int bytes = bitmap.getAllocationByteCount();
+        TreeMap<Integer, List<Bitmap>> sizes = buckets.get(bitmap.getConfig());
+        List<Bitmap> bucket = sizes.get(bytes);
+        bucket.remove(bitmap);
+        if (bucket.isEmpty()) {
+            sizes.remove(bytes);
+        }
+        for (Iterator<Bitmap> it = releaseOrder.iterator(); it.hasNext(); ) {
+            if (it.next() == bitmap) {
+                it.remove();
+                break;
+            }
+        }
+        pooledBytes -= bytes;
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+                return 2;
+            case RGBA_F16:
+                return 8;
+            default:
+                return 4;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.oddghosts.foldedflight.game;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Choreographer;
+
+/**
+ * Frame pacer driven by display vsync
+ * Choreographer callbacks run on a private looper thread and wake the
+ * game loop with the vsync timestamp, so frames start on the display's
+ * cadence instead of a rounded sleep
+ */
+public class ChoreographerFramePacer implements FramePacer {
+
+    // If vsync stops arriving (e.g. display off) frames still advance at this pace
+    private static final long VSYNC_TIMEOUT_FRAMES = 4;
+
+    // This many intervals in a row far from the estimate mean the display rate changed
+    private static final int OUTLIERS_TO_RESEED = 8;
+
+    private final Object lock = new Object();
+
+    private HandlerThread vsyncThread;
+    private Handler vsyncHandler;
+    private Choreographer choreographer;
+    private Choreographer.FrameCallback frameCallback;
+    private Choreographer.VsyncCallback vsyncCallback;
+    private volatile boolean isActive = false;
+    private boolean callbackPending = false; // Only touched on vsyncThread, or before it starts
+
+    // Written on the vsync thread, read on the game thread under lock
+    private long vsyncCount = 0L;
+    private long latestVsyncTime = 0L;
+    private long latestDeadline = 0L;
+    private long frameIntervalNanos;
+    private int outlierCount = 0;
+    private volatile long targetIntervalNanos = 0L; // 0 = every vsync
+
+    // Game thread state
+    private long consumedVsyncCount = 0L;
+    private long frameStartTime = 0L;
+    private long frameDeadline = 0L;
+    private long skippedFrames = 0L;
+
+    /**
+     * @param refreshRate Display refresh rate used until real vsync intervals are measured
+     */
+    public ChoreographerFramePacer(float refreshRate) {
+        this.frameIntervalNanos = (long) (1000000000L / Math.max(1f, refreshRate));
+    }
+
+    @Override
+    public void start() {
+        isActive = true;
+        synchronized (lock) {
+            vsyncCount = 0L;
+            latestVsyncTime = 0L;
+            outlierCount = 0;
+        }
+        consumedVsyncCount = 0L;
+        skippedFrames = 0L;
+        // A restarted pacer gets a new vsync thread with nothing posted yet
+        callbackPending = false;
+
+        vsyncThread = new HandlerThread("FramePacer");
+        vsyncThread.start();
+        vsyncHandler = new Handler(vsyncThread.getLooper());
+        vsyncHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                // Choreographer instances are per looper, so this one ticks on vsyncThread
+                choreographer = Choreographer.getInstance();
+                postCallback();
+            }
+        });
+    }
+
+    @Override
+    public void pause() {
+        // Callbacks stop re-posting themselves after the next vsync
+        isActive = false;
+    }
+
+    @Override
+    public void resume() {
+        synchronized (lock) {
+            // Vsyncs seen while parked are not skipped frames
+            consumedVsyncCount = vsyncCount;
+            latestVsyncTime = 0L;
+        }
+        isActive = true;
+        if (vsyncHandler != null) {
+            vsyncHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    postCallback();
+                }
+            });
+        }
+    }
+
+    private void postCallback() {
+        if (!isActive || callbackPending || choreographer == null) return;
+        callbackPending = true;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            if (vsyncCallback == null) {
+                vsyncCallback = new Choreographer.VsyncCallback() {
+                    @Override
+                    public void onVsync(Choreographer.FrameData frameData) {
+                        callbackPending = false;
+                        onVsyncReceived(frameData.getFrameTimeNanos(),
+                                frameData.getPreferredFrameTimeline().getDeadlineNanos());
+                        postCallback();
+                    }
+                };
+            }
+            choreographer.postVsyncCallback(vsyncCallback);
+        } else {
+            if (frameCallback == null) {
+                frameCallback = new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        callbackPending = false;
+                        onVsyncReceived(frameTimeNanos, 0L);
+                        postCallback();
+                    }
+                };
+            }
+            choreographer.postFrameCallback(frameCallback);
+        }
+    }
+
+    private void onVsyncReceived(long frameTimeNanos, long deadlineNanos) {
+        synchronized (lock) {
+            if (latestVsyncTime > 0) {
+                // Smooth the measured interval so one late callback doesn't skew it
+                long measured = frameTimeNanos - latestVsyncTime;
+                if (measured > frameIntervalNanos / 2 && measured < frameIntervalNanos * 3 / 2) {
+                    frameIntervalNanos = (frameIntervalNanos * 7 + measured) / 8;
+                    outlierCount = 0;
+                } else if (measured > 0 && ++outlierCount >= OUTLIERS_TO_RESEED) {
+                    // A mode switch nobody told us about: start over from what we see
+                    frameIntervalNanos = measured;
+                    outlierCount = 0;
+                }
+            }
+            latestVsyncTime = frameTimeNanos;
+            latestDeadline = deadlineNanos > 0 ? deadlineNanos : frameTimeNanos + frameIntervalNanos;
+            vsyncCount++;
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public long awaitNextFrame() throws InterruptedException {
+        synchronized (lock) {
+            long waitStart = System.nanoTime();
+            long timeoutNanos = frameIntervalNanos * VSYNC_TIMEOUT_FRAMES;
+
+            // Run every Nth vsync when the target rate is below the display rate
+            long vsyncsPerFrame = Math.max(1L, Math.round((double) targetIntervalNanos / frameIntervalNanos));
+
+            while (vsyncCount - consumedVsyncCount < vsyncsPerFrame) {
+                long remaining = timeoutNanos - (System.nanoTime() - waitStart);
+                if (remaining <= 0) {
+                    // No vsync arrived: pace ourselves rather than stalling the game
+                    frameStartTime = System.nanoTime();
+                    frameDeadline = frameStartTime + frameIntervalNanos * vsyncsPerFrame;
+                    return frameStartTime;
+                }
+                lock.wait(remaining / 1000000L, (int) (remaining % 1000000L));
+            }
+
+            // More than one frame slot since the last frame means we overran: skip to the latest
+            skippedFrames += (vsyncCount - consumedVsyncCount) / vsyncsPerFrame - 1;
+            consumedVsyncCount = vsyncCount;
+            frameStartTime = latestVsyncTime;
+            frameDeadline = latestDeadline + frameIntervalNanos * (vsyncsPerFrame - 1);
+            return frameStartTime;
+        }
+    }
+
+    @Override
+    public long getFrameDeadlineNanos() {
+        return frameDeadline;
+    }
+
+    @Override
+    public long getFrameIntervalNanos() {
+        synchronized (lock) {
+            return frameIntervalNanos;
+        }
+    }
+
+    @Override
+    public void setTargetFrameRate(int fps) {
+        targetIntervalNanos = 1000000000L / fps;
+    }
+
+    @Override
+    public void setDisplayRefreshRate(float refreshRate) {
+        synchronized (lock) {
+            frameIntervalNanos = (long) (1000000000L / Math.max(1f, refreshRate));
+            outlierCount = 0;
+        }
+    }
+
+    @Override
+    public long getSkippedFrameCount() {
+        return skippedFrames;
+    }
+
+    @Override
+    public void stop() {
+        isActive = false;
+        if (vsyncHandler != null) {
+            vsyncHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (choreographer != null) {
+                        if (frameCallback != null) {
+                            choreographer.removeFrameCallback(frameCallback);
+                        }
+                        if (vsyncCallback != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+                            choreographer.removeVsyncCallback(vsyncCallback);
+                        }
+                    }
+                    callbackPending = false;
+                }
+            });
+        }
+        if (vsyncThread != null) {
+            vsyncThread.quitSafely();
+            vsyncThread = null;
+        }
+        vsyncHandler = null;
+    }
+}
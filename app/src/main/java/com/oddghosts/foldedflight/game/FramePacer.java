@@ -0,0 +1,62 @@
+package com.oddghosts.foldedflight.game;
+
+/**
+ * Decides when the game loop may start its next frame
+ * Implementations block the loop thread until the next frame slot
+ */
+public interface FramePacer {
+
+    /**
+     * Called on the loop thread before the first frame
+     */
+    void start();
+
+    /**
+     * Block until the next frame should begin
+     * @return Frame start time on the System.nanoTime() clock
+     */
+    long awaitNextFrame() throws InterruptedException;
+
+    /**
+     * Time by which the current frame should be posted, on the System.nanoTime() clock
+     */
+    long getFrameDeadlineNanos();
+
+    /**
+     * Expected time between frames
+     */
+    long getFrameIntervalNanos();
+
+    /**
+     * Change how many frames per second the loop should run at
+     * Safe to call from any thread; takes effect from the next frame
+     */
+    void setTargetFrameRate(int fps);
+
+    /**
+     * The display switched to a new refresh rate, e.g. after a frame rate request
+     * Safe to call from any thread.
+     */
+    void setDisplayRefreshRate(float refreshRate);
+
+    /**
+     * Frame slots dropped because a frame ran over budget
+     */
+    long getSkippedFrameCount();
+
+    /**
+     * Stop frame callbacks while the loop is parked
+     */
+    void pause();
+
+    /**
+     * Restart frame callbacks after pause(); the next frame starts fresh
+     * rather than counting the parked time as skipped frames
+     */
+    void resume();
+
+    /**
+     * Called on the loop thread after the last frame
+     */
+    void stop();
+}
@@ -0,0 +1,107 @@
+package com.oddghosts.foldedflight.game;
+
+/**
+ * Per-phase timing for the game loop
+ * Simulation phases are recorded on the simulation thread and render
+ * phases on the render thread; each phase has its own histogram so
+ * there is never more than one writer.
+ *
+ * Usage: long start = profiler.begin(); ...; profiler.end(Phase.UPDATE, start);
+ */
+public class FrameProfiler {
+
+    public enum Phase {
+        // Simulation thread
+        INPUT,  // Touch requests, once per pass
+        FORCES, // Thrust and lift, once per step
+        UPDATE,
+        OBSTACLES,
+        COINS,
+        COLLISION,
+        SIMULATION_PASS,
+        // Render thread
+        LOCK_CANVAS,
+        DRAW_BACKGROUND,
+        DRAW_OBSTACLES,
+        DRAW_COINS,
+        DRAW_PLANE,
+        DRAW_OVERLAY,
+        DRAW_HUD,
+        UNLOCK_AND_POST,
+        FRAME
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final FrameTimingHistogram[] histograms = new FrameTimingHistogram[PHASES.length];
+    private volatile boolean enabled = true;
+
+    public FrameProfiler() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new FrameTimingHistogram();
+        }
+    }
+
+    /**
+     * Start timing a phase
+     * @return Start timestamp to pass to end(), or 0 when disabled
+     */
+    public long begin() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Finish timing a phase started with begin()
+     */
+    public void end(Phase phase, long startNanos) {
+        if (startNanos == 0L || !enabled) return;
+        histograms[phase.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Record a duration measured elsewhere
+     */
+    public void record(Phase phase, long nanos) {
+        if (!enabled) return;
+        histograms[phase.ordinal()].record(nanos);
+    }
+
+    public FrameTimingHistogram getHistogram(Phase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Clear every phase's samples
+     */
+    public void reset() {
+        for (FrameTimingHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * One line per phase with samples: count, p50/p95/p99/max in milliseconds
+     * Builds a string, so call it from diagnostics rather than per frame.
+     */
+    public String summarize() {
+        StringBuilder sb = new StringBuilder();
+        for (Phase phase : PHASES) {
+            FrameTimingHistogram h = histograms[phase.ordinal()];
+            if (h.getCount() == 0) continue;
+            sb.append(String.format(java.util.Locale.US,
+                    "%-16s n=%d p50=%.2f p95=%.2f p99=%.2f max=%.2f ms%n",
+                    phase.name(), h.getCount(),
+                    h.getP50Nanos() / 1e6, h.getP95Nanos() / 1e6,
+                    h.getP99Nanos() / 1e6, h.getMaxNanos() / 1e6));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,238 @@
+package com.oddghosts.foldedflight.game;
+
+import android.os.Build;
+import android.view.Display;
+import android.view.Surface;
+import android.view.Window;
+import android.view.WindowManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Picks the game's target frame rate from what the display supports and
+ * what the device can actually sustain
+ *
+ * Targets are 30/60/90/120 Hz, limited to rates that evenly divide one of
+ * the display's refresh rates. In AUTO mode the controller starts at the
+ * highest target and steps down when measured frame cost keeps missing
+ * the budget, then steps back up once there is plenty of headroom.
+ */
+public class FrameRateController {
+
+    public static final int AUTO = 0;
+
+    private static final int[] TARGETS = {30, 60, 90, 120};
+
+    // Step down when frames average over 90% of the budget, up when under 50% of the next budget
+    private static final float DOWNSHIFT_LOAD = 0.9f;
+    private static final float UPSHIFT_LOAD = 0.5f;
+    private static final int DOWNSHIFT_FRAMES = 60;   // ~1 s of sustained overload
+    private static final int UPSHIFT_FRAMES = 600;    // ~5-10 s of sustained headroom
+
+    private final int[] supportedTargets;
+    private final int overrideFps;
+    private volatile int targetFps;
+
+    // Render thread only
+    private float averageFrameCostNanos = 0f;
+    private int overloadedFrames = 0;
+    private int idleFrames = 0;
+
+    /**
+     * @param display Display the game is shown on, or null if not known yet
+     * @param overrideFps AUTO, or a fixed target chosen in settings
+     */
+    public FrameRateController(Display display, int overrideFps) {
+        this.supportedTargets = getSupportedTargets(display);
+        this.overrideFps = overrideFps;
+
+        if (overrideFps != AUTO) {
+            targetFps = nearestSupported(overrideFps);
+        } else {
+            targetFps = supportedTargets[supportedTargets.length - 1];
+        }
+    }
+
+    /**
+     * Target rates this display can show without judder
+     * Always includes 30 and 60 so settings have a fallback
+     */
+    public static int[] getSupportedTargets(Display display) {
+        float[] refreshRates = getRefreshRates(display);
+
+        List<Integer> supported = new ArrayList<>();
+        for (int target : TARGETS) {
+            for (float refreshRate : refreshRates) {
+                if (isMultipleOf(refreshRate, target)) {
+                    supported.add(target);
+                    break;
+                }
+            }
+        }
+        if (!supported.contains(30)) supported.add(30);
+        if (!supported.contains(60)) supported.add(60);
+        Collections.sort(supported);
+
+        int[] result = new int[supported.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = supported.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * True if the display rate shows every frame of fps for a whole number of vsyncs
+     * (within 2%, since panels report e.g. 59.94 Hz)
+     */
+    private static boolean isMultipleOf(float refreshRate, int fps) {
+        float ratio = refreshRate / fps;
+        return ratio >= 0.98f && Math.abs(ratio - Math.round(ratio)) < 0.02f * ratio;
+    }
+
+    private static float[] getRefreshRates(Display display) {
+        if (display == null) {
+            return new float[]{60f};
+        }
+
+        Display.Mode current = display.getMode();
+        Display.Mode[] modes = display.getSupportedModes();
+
+        // Only modes at the current resolution, so switching never resizes the surface
+        List<Float> rates = new ArrayList<>();
+        for (Display.Mode mode : modes) {
+            if (mode.getPhysicalWidth() == current.getPhysicalWidth()
+                    && mode.getPhysicalHeight() == current.getPhysicalHeight()) {
+                rates.add(mode.getRefreshRate());
+            }
+        }
+
+        float[] result = new float[rates.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = rates.get(i);
+        }
+        return result.length > 0 ? result : new float[]{display.getRefreshRate()};
+    }
+
+    private int nearestSupported(int fps) {
+        int best = supportedTargets[0];
+        for (int target : supportedTargets) {
+            if (Math.abs(target - fps) < Math.abs(best - fps)) {
+                best = target;
+            }
+        }
+        return best;
+    }
+
+    public int getTargetFps() {
+        return targetFps;
+    }
+
+    public boolean isAutomatic() {
+        return overrideFps == AUTO;
+    }
+
+    public int[] getSupportedTargets() {
+        return supportedTargets.clone();
+    }
+
+    /**
+     * Smoothed CPU cost of a frame, in nanoseconds
+     */
+    public float getAverageFrameCostNanos() {
+        return averageFrameCostNanos;
+    }
+
+    /**
+     * Record how long one frame took to draw (render thread only)
+     * @return True if the target frame rate changed
+     */
+    public boolean recordFrameCost(long costNanos) {
+        averageFrameCostNanos = averageFrameCostNanos == 0f
+                ? costNanos
+                : averageFrameCostNanos * 0.95f + costNanos * 0.05f;
+
+        if (!isAutomatic()) return false;
+
+        int index = indexOf(targetFps);
+        float budget = 1000000000f / targetFps;
+
+        if (averageFrameCostNanos > budget * DOWNSHIFT_LOAD && index > 0) {
+            idleFrames = 0;
+            if (++overloadedFrames >= DOWNSHIFT_FRAMES) {
+                return changeTarget(supportedTargets[index - 1]);
+            }
+        } else if (index < supportedTargets.length - 1
+                && averageFrameCostNanos < (1000000000f / supportedTargets[index + 1]) * UPSHIFT_LOAD) {
+            overloadedFrames = 0;
+            if (++idleFrames >= UPSHIFT_FRAMES) {
+                return changeTarget(supportedTargets[index + 1]);
+            }
+        } else {
+            overloadedFrames = 0;
+            idleFrames = 0;
+        }
+        return false;
+    }
+
+    private boolean changeTarget(int fps) {
+        overloadedFrames = 0;
+        idleFrames = 0;
+        android.util.Log.i("FrameRate", "Target frame rate " + targetFps + " -> " + fps);
+        targetFps = fps;
+        return true;
+    }
+
+    private int indexOf(int fps) {
+        for (int i = 0; i < supportedTargets.length; i++) {
+            if (supportedTargets[i] == fps) return i;
+        }
+        return 0;
+    }
+
+    /**
+     * Tell the compositor which rate the game surface produces (API 30+)
+     * @return False if this API level can't set it on the surface
+     */
+    public boolean applyToSurface(Surface surface) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R || surface == null || !surface.isValid()) {
+            return false;
+        }
+        surface.setFrameRate(targetFps, Surface.FRAME_RATE_COMPATIBILITY_DEFAULT);
+        return true;
+    }
+
+    /**
+     * Ask the window for a display mode that is a multiple of the target
+     * Used before API 30, where surfaces can't request a rate themselves.
+     * Must be called on the UI thread.
+     */
+    public void applyToWindow(Window window, Display display) {
+        if (window == null || display == null) return;
+
+        Display.Mode current = display.getMode();
+        Display.Mode best = null;
+        for (Display.Mode mode : display.getSupportedModes()) {
+            if (mode.getPhysicalWidth() != current.getPhysicalWidth()
+                    || mode.getPhysicalHeight() != current.getPhysicalHeight()) {
+                continue;
+            }
+            if (!isMultipleOf(mode.getRefreshRate(), targetFps)) {
+                continue;
+            }
+            // Prefer the lowest refresh rate that fits: fewer wasted vsyncs
+            if (best == null || mode.getRefreshRate() < best.getRefreshRate()) {
+                best = mode;
+            }
+        }
+
+        if (best != null) {
+            WindowManager.LayoutParams params = window.getAttributes();
+            if (params.preferredDisplayModeId != best.getModeId()) {
+                params.preferredDisplayModeId = best.getModeId();
+                window.setAttributes(params);
+            }
+        }
+    }
+}
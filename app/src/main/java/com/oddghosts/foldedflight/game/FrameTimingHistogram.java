@@ -0,0 +1,115 @@
+package com.oddghosts.foldedflight.game;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size log-bucket histogram of durations
+ * Each power of two from 1 us up is split into four buckets, so any
+ * reported percentile is at most 25% high. Recording never
+ * allocates; it is meant to be written by one thread and read by any.
+ */
+public class FrameTimingHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int OCTAVES = 24; // 1 us .. ~16 s
+    private static final int BUCKET_COUNT = OCTAVES * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Record one duration
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+
+        buckets.incrementAndGet(bucketFor(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    private static int bucketFor(long nanos) {
+        long micros = nanos / 1000L;
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+
+        int octave = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (octave - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        int index = (octave - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+        return Math.min(index, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Upper bound of a bucket, in nanoseconds
+     */
+    private static long bucketUpperNanos(int index) {
+        if (index == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE; // Also holds everything past the last octave
+        }
+        if (index < SUB_BUCKETS) {
+            return (index + 1) * 1000L;
+        }
+
+        int octave = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        long lowerMicros = (1L << octave) + ((long) sub << (octave - SUB_BUCKET_BITS));
+        long widthMicros = 1L << (octave - SUB_BUCKET_BITS);
+        return (lowerMicros + widthMicros) * 1000L;
+    }
+
+    /**
+     * Duration below which the given fraction of samples fall
+     * @param percentile 0-100
+     * @return Nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        long total = count.get();
+        if (total == 0) return 0L;
+
+        long rank = (long) Math.ceil(total * Math.max(0.0, Math.min(100.0, percentile)) / 100.0);
+        if (rank < 1) rank = 1;
+
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                // The bucket bound can overshoot the slowest real sample
+                return Math.min(bucketUpperNanos(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    public long getP50Nanos() { return getPercentileNanos(50); }
+    public long getP95Nanos() { return getPercentileNanos(95); }
+    public long getP99Nanos() { return getPercentileNanos(99); }
+    public long getMaxNanos() { return maxNanos.get(); }
+    public long getCount() { return count.get(); }
+
+    public long getMeanNanos() {
+        long total = count.get();
+        return total == 0 ? 0L : totalNanos.get() / total;
+    }
+
+    /**
+     * Clear all samples
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0L);
+        }
+        count.set(0L);
+        totalNanos.set(0L);
+        maxNanos.set(0L);
+    }
+}
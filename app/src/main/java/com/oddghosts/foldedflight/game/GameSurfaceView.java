@@ -1,14 +1,17 @@
 package com.oddghosts.foldedflight.game;
 
+import android.app.Activity;
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Point;
 import android.graphics.Rect;
 import android.graphics.Typeface;
+import android.hardware.display.DisplayManager;
+import android.os.Build;
 import android.util.AttributeSet;
+import android.view.Display;
 import android.view.MotionEvent;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
@@ -36,11 +39,58 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         void onMainMenuClicked();
     }
 
+    /**
+     * Game thread lifecycle, shared by the simulation and render threads
+     * RUNNING steps and draws every frame, PAUSED and IDLE park both threads
+     * until woken, STOPPED ends them
+     */
+    public enum ThreadState {
+        RUNNING,
+        PAUSED,
+        IDLE,
+        STOPPED
+    }
+
+    /**
+     * How frames are rasterized
+     * HARDWARE records into a display list that RenderThread draws on the GPU,
+     * SOFTWARE rasterizes every blit on the render thread's CPU
+     */
+    public enum CanvasPath {
+        HARDWARE,
+        SOFTWARE
+    }
+
     // Thread and running state
-    private Thread gameThread;
-    private boolean isRunning = false;
-    private boolean isPaused = false;
-    private boolean isFlying = false;
+    // Flags are written on the UI thread and read on the game threads
+    // The simulation thread owns all world state; the render thread (run())
+    // only sees it through snapshots
+    private Thread simulationThread;
+    private Thread renderThread;
+    private final Object stateLock = new Object();
+    private ThreadState threadState = ThreadState.STOPPED; // Guarded by stateLock
+    private boolean frameRequested = false; // Guarded by stateLock: draw once while parked
+    private boolean simulationRequested = false; // Guarded by stateLock: publish once while parked
+    private volatile boolean resetRequested = false;
+    private volatile boolean launchRequested = false;
+
+    // World snapshots handed from the simulation thread to the render thread
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private WorldSnapshot frame; // Snapshot being drawn (render thread only)
+    private long publishedSnapshots = 0L; // Simulation thread only
+
+    // Dirty tracking (render thread only): static scenes are posted once, not every frame
+    private long drawnSequence = -1L;     // Snapshot shown by the last posted frame
+    private boolean redrawRequested = true;
+
+    // Per-phase loop timings
+    private final FrameProfiler profiler = new FrameProfiler();
+
+    // Flight info and toggleable performance overlay (render thread only)
+    private final PerformanceHud hud = new PerformanceHud();
+    private volatile boolean isRunning = false;
+    private volatile boolean isPaused = false;
+    private volatile boolean isFlying = false;
 
     // Surface holder
     private SurfaceHolder surfaceHolder;
@@ -52,7 +102,7 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
     private String difficulty = "NORMAL";
 
     // Physics variables
-    private PlanePhysics plane;
+    private volatile PlanePhysics plane; // Created on the UI thread when the surface appears
     private float liftForce;
     private float forwardThrust;
     private float dragCoefficient;
@@ -62,27 +112,150 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
     private float cameraX = 0;
 
     // Touch controls
-    private boolean upPressed = false;
-    private boolean downPressed = false;
+    private volatile boolean upPressed = false;
+    private volatile boolean downPressed = false;
 
     // Graphics
-    private Bitmap originalBackgroundBitmap;
-    private Bitmap scaledBackgroundBitmap;
-    private Bitmap planeBitmap;
+    private int backgroundResId;
+    private float backgroundHeightRatio;
+    private ParallaxBackground parallax; // Streamed background layers (render thread only)
+    private volatile SpriteAtlas spriteAtlas; // Plane, coin and obstacle sprites for the active map
+    private String spriteAtlasKey; // Map, plane color and screen height spriteAtlas was built for
+    private volatile AssetPreloader assetLoader; // Load in flight, or the one that produced spriteAtlas
+    private volatile boolean assetsLoading = false; // Sprites are decoding; draw the loading bar instead
+    private volatile int assetsLoaded = 0;
+    private volatile int assetsTotal = 0;
+    private Paint loadingPaint;
+
+    // Bitmap accounting: the sprites the game needs, and the plane rotations it can do without
+    private MemoryBudget memoryBudget;
+    private final MemoryBudget.Owner spriteMemory = new MemoryBudget.Owner() {
+        @Override
+        public long getBitmapBytes() {
+            return getBitmapByteCount();
+        }
+
+        @Override
+        public long evict() {
+            return 0; // Everything here is on screen
+        }
+    };
+    private final MemoryBudget.Owner planeFrameMemory = new MemoryBudget.Owner() {
+        @Override
+        public long getBitmapBytes() {
+            RotatedSpriteCache frames = planeFrames;
+            return frames != null ? frames.getByteCount() : 0;
+        }
+
+        @Override
+        public long evict() {
+            // drawPlane() falls back to rotating on the canvas and rebuilds them later;
+            // a frame in flight may still draw these, so they are left to the GC rather than pooled
+            RotatedSpriteCache frames = planeFrames;
+            planeFrames = null;
+            long bytes = frames != null ? frames.getByteCount() : 0;
+            evictedPlaneFrameBytes = Math.max(evictedPlaneFrameBytes, bytes);
+            planeFramesCheckedAt = System.nanoTime();
+            return bytes;
+        }
+    };
+    private SpriteAtlas.Region planeSprite;
+    private SpriteAtlas.Region planeSource; // planeSprite, or a software copy of it if the atlas is in hardware
+    private volatile RotatedSpriteCache planeFrames; // planeSprite at every tilt, built in the background
+    private volatile long evictedPlaneFrameBytes = 0; // Size of the last evicted planeFrames
+    private volatile long planeFramesCheckedAt = 0;   // nanoTime of the last eviction or rebuild check
     private Paint paint;
 
+    // Overlay text, pre-rendered once with outlines baked in
+    private BitmapFont titleFont;       // "TAP TO LAUNCH!"
+    private BitmapFont subtitleFont;    // Launch hint
+    private BitmapFont gameOverFont;    // "GAME OVER!"
+    private BitmapFont statsFont;       // Game over stats
+    private BitmapFont buttonFont;      // Game over button labels
+    private BitmapFont coinCounterFont; // In-flight coin count
+
+    // Start and game over screens, rendered once into cached layers (render thread only)
+    private final OverlayLayer startLayer = new OverlayLayer();
+    private final OverlayLayer gameOverLayer = new OverlayLayer();
+    private final Rect layerBounds = new Rect();
+    private final StringBuilder statsText = new StringBuilder(64);
+    private final StringBuilder coinsText = new StringBuilder(16);
+    private final StringBuilder layerSignature = new StringBuilder(96);
+    private final OverlayLayer.Renderer startRenderer = new OverlayLayer.Renderer() {
+        @Override
+        public void render(Canvas canvas) {
+            renderStartInstructions(canvas);
+        }
+    };
+    private final OverlayLayer.Renderer gameOverRenderer = new OverlayLayer.Renderer() {
+        @Override
+        public void render(Canvas canvas) {
+            renderGameOver(canvas);
+        }
+    };
+
+    // Overlay paints
+    private Paint overlayPaint;
+    private Paint buttonPaint;
+    private Paint buttonBorderPaint;
+    private Paint buttonShadowPaint;
+
     // Screen dimensions
     private int screenWidth;
     private int screenHeight;
 
-    // Background dimensions
-    private int backgroundWidth;
-    private int backgroundHeight;
-
     // Timing
-    private long lastFrameTime;
-    private static final int TARGET_FPS = 60;
-    private static final long FRAME_TIME = 1000 / TARGET_FPS;
+    private static final int DEFAULT_TARGET_FPS = 60; // Until the display is known
+    private FramePacer framePacer;
+    private FrameRateController frameRateController;
+    private int frameRateOverride = FrameRateController.AUTO;
+    private volatile long renderDeadlineNanos = Long.MAX_VALUE; // Deadline of the frame being drawn
+
+    // Re-seeds the pacer's vsync estimate when the panel changes mode (main thread)
+    private final DisplayManager.DisplayListener displayListener = new DisplayManager.DisplayListener() {
+        @Override
+        public void onDisplayAdded(int displayId) {
+        }
+
+        @Override
+        public void onDisplayRemoved(int displayId) {
+        }
+
+        @Override
+        public void onDisplayChanged(int displayId) {
+            Display display = getDisplay();
+            FramePacer pacer = framePacer;
+            if (display != null && pacer != null && display.getDisplayId() == displayId) {
+                pacer.setDisplayRefreshRate(display.getRefreshRate());
+            }
+        }
+    };
+
+    // Canvas path
+    private volatile boolean hardwareCanvasEnabled = true;
+    private volatile boolean surfaceHardwareCanvas = true; // hardwareCanvasEnabled as of surfaceCreated()
+    private volatile boolean hardwareCanvasFailed = false; // Set when lockHardwareCanvas throws, cleared per surface
+    private volatile CanvasPath canvasPath = CanvasPath.SOFTWARE; // Path of the last drawn frame
+
+    // Fixed timestep simulation
+    // Physics always advances in SIMULATION_STEP increments so a slow frame
+    // replays the same steps a fast device would have taken
+    private static final int SIMULATION_HZ = 120;
+    private static final float SIMULATION_STEP = 1f / SIMULATION_HZ;
+    private static final long SIMULATION_STEP_NANOS = 1000000000L / SIMULATION_HZ;
+    private static final int MAX_STEPS_PER_FRAME = 8; // Caps physics cost after a long hitch
+    private static final long PLANE_FRAMES_RETRY_NANOS = 5000000000L; // Between rebuild attempts after an eviction
+    private float accumulator = 0f;
+    private long simulationTicks = 0L; // Steps simulated since launch, drives spawn timers
+    private float previousCameraX = 0;
+
+    // Render thread interpolation state for the frame being drawn
+    private float interpolationAlpha = 1f; // How far rendering sits between the last two steps
+    private float renderCameraX = 0;
+
+    // Entities drawn and skipped by viewport culling this frame (render thread)
+    private int drawnEntityCount = 0;
+    private int culledEntityCount = 0;
 
     // Game timer (seconds survived)
     private float survivalTimeSeconds = 0f;
@@ -93,22 +266,21 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
     private long obstacleSpawnDelayMs = 2500L; // Time between obstacle spawns
     private float obstacleSpeed = -300f; // Negative = moves left
 
-    // Obstacle sprites by map
-    private ObstacleSet cityObstacles;
-    private ObstacleSet forestObstacles;
+    // Obstacle definitions for the map, holding the sprites of the installed atlas
+    private volatile ObstacleSet obstacleSet;
 
     // Coins
     private final List<Coin> coins = new ArrayList<>();
     private long lastCoinSpawnTime = 0L;
     private long coinSpawnDelayMs = 1500L;
-    private Bitmap coinSprite;
+    private SpriteAtlas.Region coinSprite;
     private int coinCount = 0;
 
     // Random generator
     private Random random = new Random();
 
     // Game over flag
-    private boolean isGameOver = false;
+    private volatile boolean isGameOver = false;
 
     // Callback for game over event
     private GameOverListener gameOverListener;
@@ -125,6 +297,7 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         boolean isGrounded; // If true, sits on ground
         float heightRatio; // Height as fraction of screen
         int resourceId;
+        SpriteAtlas.Region sprite; // Shared by every obstacle of this kind, sized for the current screen
 
         ObstacleDefinition(String name, boolean isGrounded, float heightRatio, int resourceId) {
             this.name = name;
@@ -171,6 +344,20 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         paint.setAntiAlias(true);
         paint.setFilterBitmap(false); // Keep pixel art sharp
 
+        // Semi-transparent game over backdrop
+        overlayPaint = new Paint();
+        overlayPaint.setColor(Color.argb(180, 0, 0, 0));
+
+        buttonPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        buttonBorderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        buttonBorderPaint.setStyle(Paint.Style.STROKE);
+        buttonBorderPaint.setStrokeWidth(6);
+        buttonShadowPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        loadingPaint = new Paint();
+
+        memoryBudget = MemoryBudget.get(context);
+
         this.context = context;
         setFocusable(true);
     }
@@ -224,50 +411,258 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
     }
 
     private void loadResources() {
-        // Load background based on map type
+        // Pick background based on map type
+        // The render thread streams it in tiles, sized for the surface it draws to
         if (mapType.equals("CITY")) {
-            originalBackgroundBitmap = BitmapFactory.decodeResource(getResources(), R.drawable.city_map);
+            backgroundResId = R.drawable.city_map;
+            backgroundHeightRatio = SpriteSizes.CITY_MAP;
         } else {
-            originalBackgroundBitmap = BitmapFactory.decodeResource(getResources(), R.drawable.forest_map);
+            backgroundResId = R.drawable.forest_map;
+            backgroundHeightRatio = SpriteSizes.FOREST_MAP;
+        }
+
+        // Bake overlay text once; it doesn't depend on the map or screen size
+        if (titleFont == null) {
+            loadFonts();
+        }
+        memoryBudget.register("Game sprites", spriteMemory, false);
+        memoryBudget.register("Plane rotations", planeFrameMemory, true);
+
+        // A new surface at the same size (e.g. after backgrounding) keeps the decoded sprites
+        final String atlasKey = getAtlasKey(mapType, planeColor, screenHeight);
+        if (spriteAtlas != null && atlasKey.equals(spriteAtlasKey)) {
+            android.util.Log.d("GameSurfaceView", "Reusing sprites for " + atlasKey);
+            return;
+        }
+        AssetPreloader current = assetLoader;
+        if (assetsLoading && current != null && current.getKey().equals(atlasKey)) {
+            return; // Still loading for the previous surface
+        }
+
+        // Decode on worker threads, using the settings screen's preload if it matches
+        final ObstacleSet loadingSet = loadObstacleSprites(mapType);
+        SpriteDiskCache diskCache = SpriteDiskCache.get(getContext());
+        SpriteLoader spriteLoader = new SpriteLoader(getResources(), diskCache);
+        final AssetPreloader loader = AssetPreloader.obtain(atlasKey,
+                createAtlasBuilder(spriteLoader, planeColor, screenHeight, loadingSet), spriteLoader, diskCache);
+        assetLoader = loader;
+        assetsLoading = true;
+        loader.setListener(new AssetPreloader.Listener() {
+            @Override
+            public void onProgress(int loaded, int total) {
+                if (assetLoader != loader) return;
+                assetsLoaded = loaded;
+                assetsTotal = total;
+                requestFrame();
+            }
+
+            @Override
+            public void onLoaded(SpriteAtlas atlas) {
+                // A newer surface may have started its own load meanwhile
+                if (assetLoader != loader) return;
+                installSprites(atlas, atlasKey, loadingSet);
+            }
+        });
+    }
+
+    /**
+     * Start decoding the sprites for a map and plane before the game screen opens
+     * The game surface picks the result up if it turns out the same size as the display.
+     */
+    public static void preloadAssets(Activity activity, String mapType, String planeColor) {
+        // The game runs fullscreen, so its surface is as tall as the display
+        int screenHeight = getFullscreenHeight(activity);
+
+        SpriteDiskCache diskCache = SpriteDiskCache.get(activity);
+        SpriteLoader spriteLoader = new SpriteLoader(activity.getApplicationContext().getResources(), diskCache);
+        AssetPreloader.preload(getAtlasKey(mapType, planeColor, screenHeight),
+                createAtlasBuilder(spriteLoader, planeColor, screenHeight, loadObstacleSprites(mapType)),
+                spriteLoader, diskCache);
+    }
+
+    /**
+     * Height of the activity's window including system bars, which a fullscreen surface gets
+     */
+    @SuppressWarnings("deprecation")
+    private static int getFullscreenHeight(Activity activity) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            // Bounds include the area under the system bars
+            return activity.getWindowManager().getCurrentWindowMetrics().getBounds().height();
         }
+        Point displaySize = new Point();
+        activity.getWindowManager().getDefaultDisplay().getRealSize(displaySize);
+        return displaySize.y;
+    }
 
-        // Scale background to fit screen height
-        scaleBackgroundToFitHeight();
+    private static String getAtlasKey(String mapType, String planeColor, int screenHeight) {
+        return mapType + "/" + planeColor + "/" + screenHeight;
+    }
 
+    /**
+     * Every sprite a map can show, at the size it is drawn
+     */
+    private static SpriteAtlas.Builder createAtlasBuilder(SpriteLoader spriteLoader, String planeColor,
+                                                          int screenHeight, ObstacleSet obstacleSet) {
         // Load plane sprite based on color
         int planeResId = R.drawable.white_plane;
+        int planeSize = SpriteSizes.WHITE_PLANE_PX;
         switch (planeColor) {
             case "RED":
                 planeResId = R.drawable.red_plane;
+                planeSize = SpriteSizes.RED_PLANE_PX;
                 break;
             case "BLUE":
                 planeResId = R.drawable.blue_plane;
+                planeSize = SpriteSizes.BLUE_PLANE_PX;
                 break;
             case "YELLOW":
                 planeResId = R.drawable.yellow_plane;
+                planeSize = SpriteSizes.YELLOW_PLANE_PX;
                 break;
         }
-        planeBitmap = BitmapFactory.decodeResource(getResources(), planeResId);
 
-        // Scale plane to appropriate size
-        if (planeBitmap != null) {
-            planeBitmap = Bitmap.createScaledBitmap(planeBitmap, 192, 192, false);
+        int coinSize = (int) (screenHeight * SpriteSizes.COIN);
+        SpriteAtlas.Builder atlasBuilder = new SpriteAtlas.Builder(spriteLoader)
+                .add("plane", planeResId, planeSize, planeSize)
+                .add("coin", R.drawable.coin, coinSize, coinSize);
+
+        for (ObstacleDefinition def : obstacleSet.obstacles) {
+            atlasBuilder.addWithHeight(def.name, def.resourceId, (int) (screenHeight * def.heightRatio));
         }
+        return atlasBuilder;
+    }
 
-        // Load obstacle sprites
-        loadObstacleSprites();
+    /**
+     * Hand a finished atlas to the game (loader thread)
+     * Sprite fields are written before assetsLoading is cleared, so threads
+     * that check assetsLoading see them.
+     */
+    private void installSprites(SpriteAtlas atlas, String atlasKey, ObstacleSet loadedSet) {
+        if (atlas == null) {
+            // Nothing decoded; leave whatever was showing before
+            assetsLoading = false;
+            requestSimulation();
+            return;
+        }
 
-        // Load coin sprite
-        try {
-            coinSprite = BitmapFactory.decodeResource(getResources(), R.drawable.coin);
-        } catch (Exception e) {
-            // Coin sprite not found, coins will be disabled
-            coinSprite = null;
+        for (ObstacleDefinition def : loadedSet.obstacles) {
+            def.sprite = atlas.getRegion(def.name);
+        }
+
+        // Sprites never change from here on: for a hardware canvas, keep them on the GPU only
+        boolean hardware = surfaceHardwareCanvas && !hardwareCanvasFailed;
+        SpriteAtlas.Region plane = atlas.getRegion("plane");
+        SpriteAtlas.Region source = plane;
+        if (hardware) {
+            // Rotations render from software pixels, so keep the plane's before its page moves
+            SpriteAtlas.Region copy = plane != null ? plane.copyToSoftware() : null;
+            long freed = atlas.moveToHardware();
+            if (atlas.isHardware()) {
+                source = copy;
+                android.util.Log.i("GameSurfaceView", "Moved " + atlas.getPageCount()
+                        + " sprite page(s) to hardware bitmaps, " + freed / 1024 + " KB off the heap");
+            } else if (copy != null && copy.page != plane.page) {
+                copy.page.recycle(); // Still in software: rotate from the atlas itself
+            }
+        }
+
+        RotatedSpriteCache frames = null;
+        if (source != null) {
+            frames = createPlaneFrames(source, hardware);
+        }
+
+        planeSprite = plane;
+        planeSource = source;
+        planeFrames = frames;
+        coinSprite = atlas.getRegion("coin"); // Coins are disabled if it failed to load
+        obstacleSet = loadedSet;
+        spriteAtlasKey = atlasKey;
+        spriteAtlas = atlas;
+        assetsLoading = false;
+
+        // Newest cache: evict older ones first if this went over budget
+        memoryBudget.touch(planeFrameMemory);
+        memoryBudget.enforce();
+
+        // Show the start screen
+        requestSimulation();
+    }
+
+    /**
+     * Start rendering the plane at every tilt
+     * 1 degree steps across the +-30 degree tilt drawPlane() clamps to.
+     */
+    private static RotatedSpriteCache createPlaneFrames(SpriteAtlas.Region source, boolean hardware) {
+        RotatedSpriteCache frames = new RotatedSpriteCache(source, 30, 1, hardware);
+        frames.buildAsync();
+        return frames;
+    }
+
+    /**
+     * A software canvas can't draw HARDWARE bitmaps: bring the sprites back
+     * to software after a fallback from the hardware canvas (render thread)
+     */
+    private void ensureSoftwareSprites() {
+        SpriteAtlas atlas = spriteAtlas;
+        if (atlas != null && atlas.isHardware()) {
+            android.util.Log.i("GameSurfaceView", "Software canvas: moving sprites back from hardware bitmaps");
+            atlas.moveToSoftware();
+        }
+        RotatedSpriteCache frames = planeFrames;
+        SpriteAtlas.Region source = planeSource;
+        if (frames != null && frames.isHardware() && source != null) {
+            // drawPlane() rotates on the canvas until these are ready
+            planeFrames = createPlaneFrames(source, false);
         }
     }
 
     /**
-     * Load obstacle sprites based on map type with proper sizing requirements
+     * Rasterize the overlay fonts into glyph atlases
+     * Sizes, colors and outlines match what the overlays used to set up per frame.
+     */
+    private void loadFonts() {
+        Typeface customTypeface = ResourcesCompat.getFont(context, R.font.pixelboy);
+
+        titleFont = createOutlinedFont(customTypeface, 80, Color.WHITE, 8, BitmapFont.UPPERCASE);
+        subtitleFont = createOutlinedFont(customTypeface, 60, Color.WHITE, 8, BitmapFont.PRINTABLE_ASCII);
+        gameOverFont = createOutlinedFont(customTypeface, 100, Color.RED, 10, BitmapFont.UPPERCASE);
+        statsFont = createOutlinedFont(customTypeface, 50, Color.WHITE, 6, BitmapFont.PRINTABLE_ASCII);
+
+        Paint buttonTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        buttonTextPaint.setColor(Color.WHITE);
+        buttonTextPaint.setTextSize(48);
+        buttonTextPaint.setTypeface(customTypeface);
+        buttonFont = new BitmapFont(buttonTextPaint, null, 0, BitmapFont.UPPERCASE);
+
+        Paint coinPaint = new Paint();
+        coinPaint.setColor(Color.WHITE);
+        coinPaint.setTextSize(40);
+        coinPaint.setShadowLayer(2, 1, 1, Color.BLACK);
+        coinCounterFont = new BitmapFont(coinPaint, null, 3, BitmapFont.PRINTABLE_ASCII);
+    }
+
+    private BitmapFont createOutlinedFont(Typeface typeface, float textSize, int fillColor,
+                                          float strokeWidth, String charset) {
+        // Stroke paint (black outline)
+        Paint strokePaint = new Paint();
+        strokePaint.setColor(Color.BLACK);
+        strokePaint.setTextSize(textSize);
+        strokePaint.setTypeface(typeface);
+        strokePaint.setStyle(Paint.Style.STROKE);
+        strokePaint.setStrokeWidth(strokeWidth);
+
+        // Fill paint
+        Paint fillPaint = new Paint();
+        fillPaint.setColor(fillColor);
+        fillPaint.setTextSize(textSize);
+        fillPaint.setTypeface(typeface);
+
+        return new BitmapFont(fillPaint, strokePaint, 0, charset);
+    }
+
+    /**
+     * Obstacle definitions for a map type with proper sizing requirements
+     * Sprites are filled in once the atlas built from them is installed.
      *
      * City Map (5 obstacles):
      * - Building: ground, 50% screen height (very tall obstacle)
@@ -280,24 +675,24 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
      * - Ghost_1, Ghost_2: like jet/alien (top half, max 1/3 screen)
      * - Zombie: like lamppost (ground, 30% screen)
      */
-    private void loadObstacleSprites() {
-        cityObstacles = new ObstacleSet();
-        forestObstacles = new ObstacleSet();
+    private static ObstacleSet loadObstacleSprites(String mapType) {
+        ObstacleSet cityObstacles = new ObstacleSet();
+        ObstacleSet forestObstacles = new ObstacleSet();
 
         // City Map Obstacles
         // Note: Update these resource IDs to match your actual drawable names
         try {
             // Building - ground, 85% of screen
-            cityObstacles.add("building", true, 0.50f, R.drawable.building);
+            cityObstacles.add("building", true, SpriteSizes.BUILDING, R.drawable.building);
 
             // Lamppost - ground, 1/4 screen
-            cityObstacles.add("lamppost", true, 0.30f, R.drawable.lamp_post);
+            cityObstacles.add("lamppost", true, SpriteSizes.LAMP_POST, R.drawable.lamp_post);
 
             // Flying obstacles - top half
             // Jet and Alien: max 1/3 screen, Bird: 1/5 screen
-            try { cityObstacles.add("jet", false, 0.3f, R.drawable.jet); } catch (Exception e) {}
-            try { cityObstacles.add("alien", false, 0.3f, R.drawable.alien); } catch (Exception e) {}
-            try { cityObstacles.add("bird", false, 0.2f, R.drawable.bird); } catch (Exception e) {}
+            try { cityObstacles.add("jet", false, SpriteSizes.JET, R.drawable.jet); } catch (Exception e) {}
+            try { cityObstacles.add("alien", false, SpriteSizes.ALIEN, R.drawable.alien); } catch (Exception e) {}
+            try { cityObstacles.add("bird", false, SpriteSizes.BIRD, R.drawable.bird); } catch (Exception e) {}
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -305,37 +700,19 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         // Forest Map Obstacles
         try {
             // Tree - ground, 85% of screen (like building)
-            try { forestObstacles.add("tree", true, 0.50f, R.drawable.tree); } catch (Exception e) {}
+            try { forestObstacles.add("tree", true, SpriteSizes.TREE, R.drawable.tree); } catch (Exception e) {}
 
             // Zombie - ground, 1/4 screen (like lamppost)
-            forestObstacles.add("zombie", true, 0.30f, R.drawable.zombie);
+            forestObstacles.add("zombie", true, SpriteSizes.ZOMBIE, R.drawable.zombie);
 
             // Flying obstacles - top half, max 1/3 screen
-            try { forestObstacles.add("ghost_1", false, 0.3f, R.drawable.ghost_1); } catch (Exception e) {}
-            try { forestObstacles.add("ghost_2", false, 0.3f, R.drawable.ghost_2); } catch (Exception e) {}
+            try { forestObstacles.add("ghost_1", false, SpriteSizes.GHOST_1, R.drawable.ghost_1); } catch (Exception e) {}
+            try { forestObstacles.add("ghost_2", false, SpriteSizes.GHOST_2, R.drawable.ghost_2); } catch (Exception e) {}
         } catch (Exception e) {
             e.printStackTrace();
         }
-    }
-
-    /**
-     * Scale background to match screen height, maintain aspect ratio
-     */
-    private void scaleBackgroundToFitHeight() {
-        if (originalBackgroundBitmap == null || screenHeight == 0 || screenWidth == 0) {
-            return;
-        }
 
-        float scale = (float) screenHeight / originalBackgroundBitmap.getHeight();
-        backgroundWidth = (int) (originalBackgroundBitmap.getWidth() * scale);
-        backgroundHeight = screenHeight;
-
-        scaledBackgroundBitmap = Bitmap.createScaledBitmap(
-                originalBackgroundBitmap,
-                backgroundWidth,
-                backgroundHeight,
-                false
-        );
+        return mapType.equals("CITY") ? cityObstacles : forestObstacles;
     }
 
     @Override
@@ -351,6 +728,19 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         plane.setWorldBounds(Float.MAX_VALUE, screenHeight);
         plane.setDragCoefficient(dragCoefficient);
         plane.setMaxSpeed(maxSpeed);
+
+        // A new surface gets a fresh chance at the hardware path; a surface keeps
+        // one kind of producer, so the setting is only read here
+        surfaceHardwareCanvas = hardwareCanvasEnabled;
+        hardwareCanvasFailed = false;
+
+        // Pick a frame rate now that the display is known
+        frameRateController = new FrameRateController(getDisplay(), frameRateOverride);
+        applyTargetFrameRate();
+        DisplayManager displayManager = (DisplayManager) context.getSystemService(Context.DISPLAY_SERVICE);
+        if (displayManager != null) {
+            displayManager.registerDisplayListener(displayListener, null);
+        }
     }
 
     @Override
@@ -358,107 +748,506 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         screenWidth = width;
         screenHeight = height;
 
-        scaleBackgroundToFitHeight();
-
         if (plane != null) {
             plane.setWorldBounds(Float.MAX_VALUE, height);
         }
+
+        // Parked threads still need to show the new surface once
+        requestSimulation();
     }
 
     @Override
     public void surfaceDestroyed(SurfaceHolder holder) {
+        DisplayManager displayManager = (DisplayManager) context.getSystemService(Context.DISPLAY_SERVICE);
+        if (displayManager != null) {
+            displayManager.unregisterDisplayListener(displayListener);
+        }
         stopGame();
     }
 
     public void startGame() {
         isRunning = true;
         isPaused = false;
-        lastObstacleSpawnTime = System.currentTimeMillis();
-        lastCoinSpawnTime = System.currentTimeMillis();
-        gameThread = new Thread(this);
-        gameThread.start();
-        lastFrameTime = System.nanoTime();
+        if (framePacer == null) {
+            framePacer = createDefaultFramePacer();
+        }
+        framePacer.setTargetFrameRate(frameRateController != null
+                ? frameRateController.getTargetFps() : DEFAULT_TARGET_FPS);
+        Display display = getDisplay();
+        if (display != null) {
+            framePacer.setDisplayRefreshRate(display.getRefreshRate());
+        }
+        setThreadState(getActiveThreadState());
+        requestSimulation();
+
+        simulationThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runSimulation();
+            }
+        }, "GameSimulation");
+        renderThread = new Thread(this, "GameRender");
+        simulationThread.start();
+        renderThread.start();
+    }
+
+    /**
+     * Replace the frame pacer; takes effect on the next startGame()
+     */
+    public void setFramePacer(FramePacer pacer) {
+        this.framePacer = pacer;
+    }
+
+    /**
+     * Vsync pacing by default; use setFramePacer(new SleepFramePacer(fps))
+     * to fall back to timed sleeps
+     */
+    private FramePacer createDefaultFramePacer() {
+        // View may not be attached yet, so its refresh rate is only a starting guess
+        Display display = getDisplay();
+        float refreshRate = display != null ? display.getRefreshRate() : DEFAULT_TARGET_FPS;
+        return new ChoreographerFramePacer(refreshRate);
+    }
+
+    /**
+     * Fix the target frame rate instead of adapting it; FrameRateController.AUTO
+     * to adapt. Takes effect when the surface is next created.
+     */
+    public void setFrameRateOverride(int fps) {
+        this.frameRateOverride = fps;
+    }
+
+    /**
+     * Per-phase timing histograms for the game loop
+     * Read or reset from any thread, e.g. getFrameProfiler().summarize()
+     */
+    public FrameProfiler getFrameProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Show or hide the performance overlay (FPS, frame times, GC, memory)
+     */
+    public void setPerformanceHudEnabled(boolean enabled) {
+        hud.setEnabled(enabled);
+        requestFrame();
+    }
+
+    public boolean isPerformanceHudEnabled() {
+        return hud.isEnabled();
+    }
+
+    /**
+     * Allow drawing through lockHardwareCanvas() (default on)
+     * Off forces the software canvas, e.g. to compare frame costs. Takes
+     * effect on the next surface: once a surface has been locked one way it
+     * can't be locked the other.
+     */
+    public void setHardwareCanvasEnabled(boolean enabled) {
+        this.hardwareCanvasEnabled = enabled;
+    }
+
+    /**
+     * Rendering path used for the most recent frame
+     */
+    public CanvasPath getCanvasPath() {
+        return canvasPath;
+    }
+
+    /**
+     * Frame rate the game is currently aiming for
+     */
+    public int getTargetFps() {
+        return frameRateController != null ? frameRateController.getTargetFps() : DEFAULT_TARGET_FPS;
+    }
+
+    /**
+     * Push the controller's target to the pacer and the display
+     */
+    private void applyTargetFrameRate() {
+        final FrameRateController controller = frameRateController;
+        if (controller == null) return;
+
+        if (framePacer != null) {
+            framePacer.setTargetFrameRate(controller.getTargetFps());
+        }
+
+        // Older platforms can only pick a display mode through the window
+        if (!controller.applyToSurface(surfaceHolder.getSurface()) && context instanceof Activity) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    controller.applyToWindow(((Activity) context).getWindow(), getDisplay());
+                }
+            });
+        }
     }
 
     public void pauseGame() {
         isPaused = true;
+        setThreadState(ThreadState.PAUSED);
     }
 
     public void resumeGame() {
         isPaused = false;
-        lastFrameTime = System.nanoTime();
+        setThreadState(getActiveThreadState());
+        requestSimulation();
     }
 
     public void stopGame() {
         isRunning = false;
+        setThreadState(ThreadState.STOPPED);
         try {
-            if (gameThread != null) {
-                gameThread.join();
+            if (simulationThread != null) {
+                simulationThread.join();
+            }
+            if (renderThread != null) {
+                renderThread.join();
             }
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Give the decoded sprites back to the BitmapPool for the next game
+     * Call after stopGame(), once no thread draws them.
+     */
+    public void releaseBitmaps() {
+        assetLoader = null; // A load still in flight is dropped
+        memoryBudget.unregister(spriteMemory);
+        memoryBudget.unregister(planeFrameMemory);
+        if (planeFrames != null) {
+            planeFrames.release();
+            planeFrames = null;
+        }
+        if (spriteAtlas != null) {
+            spriteAtlas.release();
+            spriteAtlas = null;
+        }
+        planeSprite = null;
+        planeSource = null;
+        coinSprite = null;
+        obstacleSet = null;
+        spriteAtlasKey = null;
+
+        BitmapPool pool = BitmapPool.shared();
+        android.util.Log.i("GameSurfaceView", "Bitmap pool holds " + pool.getPooledBytes() / 1024 + " KB ("
+                + pool.getHitCount() + " reused, " + pool.getMissCount() + " allocated so far)");
+        memoryBudget.enforce();
+    }
+
     /**
      * Reset the game to initial state
+     * World state is owned by the simulation thread, so the reset itself
+     * runs there on its next pass
      */
     public void resetGame() {
         isFlying = false;
         isGameOver = false;
-        cameraX = 0;
         upPressed = false;
         downPressed = false;
+        resetRequested = true;
+
+        // Back on the start screen: nothing to simulate until the next launch
+        if (!isPaused && isRunning) {
+            setThreadState(ThreadState.IDLE);
+        }
+        requestSimulation();
+    }
+
+    /**
+     * Apply a reset requested from the UI thread (simulation thread only)
+     */
+    private void performReset() {
+        cameraX = 0;
+        previousCameraX = 0;
         coinCount = 0;
         survivalTimeSeconds = 0f;
+        simulationTicks = 0L;
+        accumulator = 0f;
 
         obstacles.clear();
-        lastObstacleSpawnTime = System.currentTimeMillis();
+        lastObstacleSpawnTime = getSimulationTimeMs();
 
         coins.clear();
-        lastCoinSpawnTime = System.currentTimeMillis();
+        lastCoinSpawnTime = getSimulationTimeMs();
 
         if (plane != null) {
             plane.reset(100, screenHeight / 2.0f);
         }
+    }
 
-        lastFrameTime = System.nanoTime();
+    /**
+     * Apply a launch requested by a tap (simulation thread only)
+     */
+    private void performLaunch() {
+        survivalTimeSeconds = 0f;
+        if (plane != null) {
+            plane.launch(300, -80);
+        }
+        lastObstacleSpawnTime = getSimulationTimeMs();
+        lastCoinSpawnTime = getSimulationTimeMs();
     }
 
+    /**
+     * State the threads should be in when the game isn't paused
+     * Only flight needs a frame every vsync; the start and game over screens are static
+     */
+    private ThreadState getActiveThreadState() {
+        return isFlying && !isGameOver ? ThreadState.RUNNING : ThreadState.IDLE;
+    }
+
+    /**
+     * Current game thread state
+     */
+    public ThreadState getThreadState() {
+        synchronized (stateLock) {
+            return threadState;
+        }
+    }
+
+    private void setThreadState(ThreadState state) {
+        synchronized (stateLock) {
+            // A stopped thread stays stopped until startGame()
+            if (threadState == ThreadState.STOPPED && state != ThreadState.STOPPED && !isRunning) {
+                return;
+            }
+            threadState = state;
+            stateLock.notifyAll();
+        }
+    }
+
+    /**
+     * Ask a parked render thread to draw one frame without advancing the game
+     */
+    private void requestFrame() {
+        synchronized (stateLock) {
+            frameRequested = true;
+            stateLock.notifyAll();
+        }
+    }
+
+    /**
+     * Ask a parked simulation thread to apply pending requests and publish
+     * a fresh snapshot, which in turn requests a frame
+     */
+    private void requestSimulation() {
+        synchronized (stateLock) {
+            simulationRequested = true;
+            stateLock.notifyAll();
+        }
+    }
+
+    /**
+     * Simulation thread: block while PAUSED or IDLE unless a pass was requested
+     */
+    private ThreadState awaitSimulationState() throws InterruptedException {
+        synchronized (stateLock) {
+            while ((threadState == ThreadState.PAUSED || threadState == ThreadState.IDLE) && !simulationRequested) {
+                stateLock.wait();
+            }
+            simulationRequested = false;
+            return threadState;
+        }
+    }
+
+    /**
+     * Render thread: block while PAUSED or IDLE unless a frame was requested
+     * @return The state to run the next frame in
+     */
+    private ThreadState awaitRunnableState() throws InterruptedException {
+        synchronized (stateLock) {
+            boolean parked = false;
+            while ((threadState == ThreadState.PAUSED || threadState == ThreadState.IDLE) && !frameRequested) {
+                if (!parked) {
+                    framePacer.pause();
+                    parked = true;
+                }
+                stateLock.wait();
+            }
+            if (parked) {
+                framePacer.resume();
+            }
+            if (frameRequested) {
+                // Something outside the snapshot changed, e.g. the HUD was toggled
+                redrawRequested = true;
+            }
+            frameRequested = false;
+            return threadState;
+        }
+    }
+
+    /**
+     * Render loop: draws the newest world snapshot once per frame slot
+     */
     @Override
     public void run() {
-        while (isRunning) {
-            if (!isPaused) {
-                long currentTime = System.nanoTime();
-                float deltaTime = (currentTime - lastFrameTime) / 1000000000.0f;
-                lastFrameTime = currentTime;
+        framePacer.start();
+        try {
+            while (true) {
+                ThreadState state = awaitRunnableState();
+                if (state == ThreadState.STOPPED) break;
 
-                // Limit delta time
-                if (deltaTime > 0.05f) deltaTime = 0.05f;
+                // Wait for the next frame slot (vsync, or a timed sleep as fallback)
+                framePacer.awaitNextFrame();
+                renderDeadlineNanos = framePacer.getFrameDeadlineNanos();
 
-                update(deltaTime);
                 draw();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            framePacer.stop();
+            if (parallax != null) {
+                parallax.release();
+                parallax = null;
+            }
+        }
+    }
+
+    /**
+     * Simulation loop: steps the world on a fixed tick, independent of how
+     * long the render thread takes to post frames, and publishes a snapshot
+     * after each pass
+     */
+    private void runSimulation() {
+        long lastSimulationTime = System.nanoTime();
+        boolean wasRunning = false;
+
+        try {
+            while (true) {
+                ThreadState state = awaitSimulationState();
+                if (state == ThreadState.STOPPED) break;
+
+                long passStart = profiler.begin();
+                long inputStart = profiler.begin();
+                applyPendingRequests();
+                profiler.end(FrameProfiler.Phase.INPUT, inputStart);
+
+                long now = System.nanoTime();
+                boolean running = state == ThreadState.RUNNING;
+                if (running) {
+                    if (!wasRunning) {
+                        // Time spent parked is not game time
+                        lastSimulationTime = now;
+                        accumulator = 0f;
+                    }
+                    float delta = (now - lastSimulationTime) / 1000000000.0f;
+                    lastSimulationTime = now;
+
+                    advanceSimulation(delta, renderDeadlineNanos);
+                }
+                wasRunning = running;
 
-                // Frame rate limiting
-                long frameTime = System.nanoTime() - currentTime;
-                long sleepTime = FRAME_TIME - (frameTime / 1000000);
-                if (sleepTime > 0) {
-                    try {
-                        Thread.sleep(sleepTime);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
+                publishSnapshot(now);
+                profiler.end(FrameProfiler.Phase.SIMULATION_PASS, passStart);
+
+                if (running) {
+                    // Sleep until the next step is due
+                    long untilNextStep = (long) ((SIMULATION_STEP - accumulator) * 1000000000L);
+                    if (untilNextStep > 0) {
+                        Thread.sleep(untilNextStep / 1000000L, (int) (untilNextStep % 1000000L));
                     }
+                } else {
+                    // Parked pass: let the renderer show the result once
+                    requestFrame();
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Apply resets and launches requested from the UI thread (simulation thread only)
+     */
+    private void applyPendingRequests() {
+        if (resetRequested) {
+            resetRequested = false;
+            performReset();
+        }
+        if (launchRequested) {
+            launchRequested = false;
+            performLaunch();
+        }
+    }
+
+    /**
+     * Copy the world into the free snapshot slot and hand it to the renderer
+     * (simulation thread only)
+     */
+    private void publishSnapshot(long now) {
+        WorldSnapshot snapshot = snapshots.getWriteSnapshot();
+
+        snapshot.copyPlane(plane);
+        snapshot.cameraX = cameraX;
+        snapshot.previousCameraX = previousCameraX;
+        snapshot.isFlying = isFlying;
+        snapshot.isGameOver = isGameOver;
+        snapshot.coinCount = coinCount;
+        snapshot.survivalTimeSeconds = survivalTimeSeconds;
+        snapshot.isSimulating = isFlying && !isGameOver;
+        // The newest step was due this long ago; the renderer interpolates forward from it
+        snapshot.stepTimeNanos = now - (long) (accumulator * 1000000000L);
+        snapshot.copyObstacles(obstacles);
+        snapshot.copyCoins(coins);
+        snapshot.sequence = ++publishedSnapshots;
+
+        snapshots.publish();
+    }
+
+    /**
+     * Run as many fixed simulation steps as the elapsed time covers
+     * Stops early once the render thread's frame deadline passes, so the
+     * snapshot published after this pass is ready for that frame
+     */
+    private void advanceSimulation(float frameDelta, long frameDeadlineNanos) {
+        // Nothing to step before launch or after a crash: hold the last state still
+        if (!isFlying || isGameOver) {
+            accumulator = 0f;
+            return;
+        }
+
+        accumulator += frameDelta;
+
+        int steps = 0;
+        while (accumulator >= SIMULATION_STEP && steps < MAX_STEPS_PER_FRAME) {
+            update(SIMULATION_STEP);
+            accumulator -= SIMULATION_STEP;
+            steps++;
+
+            // Past the render deadline: publish now and leave the remaining steps for the next pass
+            if (System.nanoTime() >= frameDeadlineNanos) break;
+        }
+
+        if (steps == MAX_STEPS_PER_FRAME && accumulator >= SIMULATION_STEP) {
+            // Too far behind: drop the backlog instead of spiralling
+            accumulator %= SIMULATION_STEP;
+        } else if (accumulator > SIMULATION_STEP * MAX_STEPS_PER_FRAME) {
+            accumulator = SIMULATION_STEP * MAX_STEPS_PER_FRAME;
         }
     }
 
+    /**
+     * Simulated time since launch, used instead of the wall clock so spawns
+     * line up with physics steps regardless of frame rate
+     */
+    private long getSimulationTimeMs() {
+        return simulationTicks * 1000L / SIMULATION_HZ;
+    }
+
     private void update(float deltaTime) {
         if (!isFlying || plane == null || isGameOver || isPaused) return;
 
+        simulationTicks++;
+        previousCameraX = cameraX;
+
         // Update survival time
         survivalTimeSeconds += deltaTime;
 
+        long phaseStart = profiler.begin();
+
         // Apply forward thrust
         plane.applyForce(forwardThrust, 0);
 
@@ -469,223 +1258,385 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         if (downPressed) {
             plane.applyForce(0, liftForce * 0.5f);
         }
+        profiler.end(FrameProfiler.Phase.FORCES, phaseStart);
 
         // Update physics
+        phaseStart = profiler.begin();
         plane.update(deltaTime);
 
         // Update camera to follow plane
         cameraX = plane.getX() - screenWidth * 0.25f;
         if (cameraX < 0) cameraX = 0;
+        profiler.end(FrameProfiler.Phase.UPDATE, phaseStart);
 
         // Update obstacles
+        phaseStart = profiler.begin();
         updateObstacles(deltaTime);
+        profiler.end(FrameProfiler.Phase.OBSTACLES, phaseStart);
 
         // Update coins
         if (coinSprite != null) {
+            phaseStart = profiler.begin();
             updateCoins(deltaTime);
+            profiler.end(FrameProfiler.Phase.COINS, phaseStart);
         }
 
         // Check collisions
+        phaseStart = profiler.begin();
         checkCollisions();
         if (coinSprite != null) {
             checkCoinCollisions();
         }
+        profiler.end(FrameProfiler.Phase.COLLISION, phaseStart);
+    }
+
+    /**
+     * Lock the surface with the hardware canvas when allowed, else software
+     * Falls back for the rest of this surface's life if the hardware lock fails.
+     */
+    private Canvas lockFrameCanvas() {
+        if (surfaceHardwareCanvas && !hardwareCanvasFailed) {
+            try {
+                Canvas canvas = surfaceHolder.lockHardwareCanvas();
+                if (canvas != null) {
+                    setCanvasPath(CanvasPath.HARDWARE);
+                    return canvas;
+                }
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                android.util.Log.w("GameSurfaceView", "Hardware canvas unavailable, using software", e);
+            }
+            hardwareCanvasFailed = true;
+        }
+
+        setCanvasPath(CanvasPath.SOFTWARE);
+        return surfaceHolder.lockCanvas();
+    }
+
+    private void setCanvasPath(CanvasPath path) {
+        if (canvasPath != path) {
+            android.util.Log.i("GameSurfaceView", "Canvas path " + canvasPath + " -> " + path);
+            canvasPath = path;
+        }
     }
 
     private void draw() {
+        frame = snapshots.acquireLatest();
+
+        // Nothing moves and nothing new was published: the last posted frame is still right
+        if (!frame.isSimulating && frame.sequence == drawnSequence && !redrawRequested) {
+            return;
+        }
+
+        // Blend from the snapshot's last two steps by how long ago the newest one was due
+        if (frame.isSimulating) {
+            float sinceStep = (float) (System.nanoTime() - frame.stepTimeNanos) / SIMULATION_STEP_NANOS;
+            interpolationAlpha = Math.max(0f, Math.min(1f, sinceStep));
+        } else {
+            interpolationAlpha = 1f;
+        }
+        renderCameraX = frame.getInterpolatedCameraX(interpolationAlpha);
+        drawnEntityCount = 0;
+        culledEntityCount = 0;
+
         if (surfaceHolder.getSurface().isValid()) {
-            Canvas canvas = surfaceHolder.lockCanvas();
-            if (canvas != null) {
+            long frameStart = profiler.begin();
+            long phaseStart = profiler.begin();
+            long lockStart = System.nanoTime(); // Frame cost runs from lock to post
+            Canvas canvas = lockFrameCanvas();
+            profiler.end(FrameProfiler.Phase.LOCK_CANVAS, phaseStart);
+
+            if (canvas != null && assetsLoading) {
+                // Sprites are still decoding: just the sky and a progress bar
+                drawLoading(canvas);
+                surfaceHolder.unlockCanvasAndPost(canvas);
+                redrawRequested = false;
+            } else if (canvas != null) {
+                if (canvasPath == CanvasPath.SOFTWARE) {
+                    ensureSoftwareSprites();
+                }
+                if (hud.onFrame(System.nanoTime()) && hud.isEnabled()) {
+                    hud.setBitmapBytes(memoryBudget.getTotalBytes(), memoryBudget.getBudgetBytes());
+                }
+
                 // Clear canvas with sky color
+                phaseStart = profiler.begin();
                 canvas.drawColor(Color.rgb(135, 206, 250));
 
                 // Draw scrolling background
                 drawScrollingBackground(canvas);
+                profiler.end(FrameProfiler.Phase.DRAW_BACKGROUND, phaseStart);
 
                 // Draw obstacles
+                phaseStart = profiler.begin();
                 drawObstacles(canvas);
+                profiler.end(FrameProfiler.Phase.DRAW_OBSTACLES, phaseStart);
 
                 // Draw coins
                 if (coinSprite != null) {
+                    phaseStart = profiler.begin();
                     drawCoins(canvas);
+                    profiler.end(FrameProfiler.Phase.DRAW_COINS, phaseStart);
                 }
 
                 // Draw instructions if not flying
-                if (!isFlying) {
+                if (!frame.isFlying) {
+                    phaseStart = profiler.begin();
                     drawStartInstructions(canvas);
+                    profiler.end(FrameProfiler.Phase.DRAW_OVERLAY, phaseStart);
                 }
 
                 // Draw plane if flying
-                if (isFlying && plane != null && planeBitmap != null) {
+                if (frame.isFlying && frame.hasPlane && planeSprite != null) {
+                    phaseStart = profiler.begin();
                     drawPlane(canvas);
+                    profiler.end(FrameProfiler.Phase.DRAW_PLANE, phaseStart);
                 }
 
                 // Draw game over screen
-                if (isGameOver) {
+                if (frame.isGameOver) {
+                    phaseStart = profiler.begin();
                     drawGameOver(canvas);
+                    profiler.end(FrameProfiler.Phase.DRAW_OVERLAY, phaseStart);
                 }
 
+                phaseStart = profiler.begin();
+
                 // Draw debug info
-                if (isFlying && plane != null && !isGameOver) {
-                    drawDebugInfo(canvas);
+                if (frame.isFlying && frame.hasPlane && !frame.isGameOver) {
+                    hud.drawFlightInfo(canvas, screenHeight, frame.survivalTimeSeconds,
+                            frame.planeSpeed, frame.planeX / 10);
                 }
 
                 // Draw coin counter
-                if (isFlying && coinSprite != null && !isGameOver) {
+                if (frame.isFlying && coinSprite != null && !frame.isGameOver) {
                     drawCoinCounter(canvas);
                 }
 
+                // Draw performance overlay
+                hud.drawStats(canvas, profiler.getHistogram(FrameProfiler.Phase.FRAME),
+                        drawnEntityCount, culledEntityCount, canvasPath == CanvasPath.HARDWARE);
+                profiler.end(FrameProfiler.Phase.DRAW_HUD, phaseStart);
+
+                phaseStart = profiler.begin();
                 surfaceHolder.unlockCanvasAndPost(canvas);
+                profiler.end(FrameProfiler.Phase.UNLOCK_AND_POST, phaseStart);
+
+                // Adapt the frame rate to what this device can draw in time. Lock and post
+                // are included: on the hardware path they block when the GPU or the buffer
+                // queue falls behind, while recording the commands stays cheap.
+                if (frameRateController != null
+                        && frameRateController.recordFrameCost(System.nanoTime() - lockStart)) {
+                    applyTargetFrameRate();
+                }
+
+                drawnSequence = frame.sequence;
+                redrawRequested = false;
             }
+            profiler.end(FrameProfiler.Phase.FRAME, frameStart);
         }
     }
 
     /**
-     * Draw scrolling background with infinite tiling
+     * Loading state: sky color and a bar filled by the share of sprites decoded
      */
-    private void drawScrollingBackground(Canvas canvas) {
-        if (scaledBackgroundBitmap == null) return;
-
-        // Parallax scrolling (slower than camera movement)
-        float drawX = -cameraX * 0.5f;
+    private void drawLoading(Canvas canvas) {
+        canvas.drawColor(Color.rgb(135, 206, 250));
+
+        float barWidth = screenWidth / 3f;
+        float barHeight = 24;
+        float left = (screenWidth - barWidth) / 2f;
+        float top = (screenHeight - barHeight) / 2f;
+        float progress = assetsTotal > 0 ? Math.min(1f, (float) assetsLoaded / assetsTotal) : 0f;
+
+        loadingPaint.setColor(Color.argb(120, 0, 0, 0));
+        canvas.drawRect(left, top, left + barWidth, top + barHeight, loadingPaint);
+        loadingPaint.setColor(Color.WHITE);
+        canvas.drawRect(left, top, left + barWidth * progress, top + barHeight, loadingPaint);
+    }
 
-        // Use modulo to create seamless infinite tiling
-        drawX = drawX % backgroundWidth;
-        if (drawX > 0) drawX -= backgroundWidth;
+    /**
+     * Draw scrolling background layers with infinite tiling
+     */
+    private void drawScrollingBackground(Canvas canvas) {
+        if (screenWidth == 0 || screenHeight == 0) return;
 
-        // Draw enough copies to fill the screen
-        float currentX = drawX;
-        while (currentX < screenWidth) {
-            canvas.drawBitmap(scaledBackgroundBitmap, currentX, 0, paint);
-            currentX += backgroundWidth;
+        // Tiles are cut for one surface size and canvas path; start over when either changes
+        boolean hardwareTiles = canvasPath == CanvasPath.HARDWARE;
+        if (parallax == null || !parallax.matches(screenWidth, screenHeight, hardwareTiles)) {
+            if (parallax != null) {
+                parallax.release();
+            }
+            parallax = createParallaxBackground(hardwareTiles);
         }
+        parallax.draw(canvas, renderCameraX);
     }
 
-    private void drawStartInstructions(Canvas canvas) {
-        Typeface customTypeface = ResourcesCompat.getFont(context, R.font.pixelboy);
-
-        // Stroke paint (black outline)
-        Paint strokePaint = new Paint();
-        strokePaint.setColor(Color.BLACK);
-        strokePaint.setTextSize(80);
-        strokePaint.setTextAlign(Paint.Align.CENTER);
-        strokePaint.setTypeface(customTypeface);
-        strokePaint.setStyle(Paint.Style.STROKE);
-        strokePaint.setStrokeWidth(8);
+    /**
+     * Background layers for the current map, back to front
+     * Each map ships one painted layer today, scrolling at half the camera
+     * speed; extra depth layers slot in here with their own scroll factor.
+     */
+    private ParallaxBackground createParallaxBackground(boolean hardwareTiles) {
+        return new ParallaxBackground(screenWidth, screenHeight, SpriteDiskCache.get(getContext()), hardwareTiles)
+                .addLayer(getResources(), backgroundResId, 0.5f, backgroundHeightRatio);
+    }
 
-        // Fill paint (white text)
-        Paint fillPaint = new Paint();
-        fillPaint.setColor(Color.WHITE);
-        fillPaint.setTextSize(80);
-        fillPaint.setTextAlign(Paint.Align.CENTER);
-        fillPaint.setTypeface(customTypeface);
+    private void drawStartInstructions(Canvas canvas) {
+        // Nothing on this screen changes until the surface is resized
+        if (!startLayer.isCurrent("start", screenWidth, screenHeight)) {
+            layerBounds.setEmpty();
+            titleFont.addBounds(layerBounds, "TAP TO LAUNCH!", screenWidth / 2, screenHeight / 2, Paint.Align.CENTER);
+            subtitleFont.addBounds(layerBounds, "Use buttons to climb/dive", screenWidth / 2, screenHeight / 2 + 80, Paint.Align.CENTER);
+            startLayer.update("start", screenWidth, screenHeight, layerBounds, startRenderer);
+        }
+        startLayer.draw(canvas);
+    }
 
+    private void renderStartInstructions(Canvas canvas) {
         // Main title
-        canvas.drawText("TAP TO LAUNCH!", screenWidth / 2, screenHeight / 2, strokePaint);
-        canvas.drawText("TAP TO LAUNCH!", screenWidth / 2, screenHeight / 2, fillPaint);
+        titleFont.draw(canvas, "TAP TO LAUNCH!", screenWidth / 2, screenHeight / 2, Paint.Align.CENTER);
 
         // Subtext
-        strokePaint.setTextSize(60);
-        fillPaint.setTextSize(60);
-
-        canvas.drawText("Use buttons to climb/dive", screenWidth / 2, screenHeight / 2 + 80, strokePaint);
-        canvas.drawText("Use buttons to climb/dive", screenWidth / 2, screenHeight / 2 + 80, fillPaint);
+        subtitleFont.draw(canvas, "Use buttons to climb/dive", screenWidth / 2, screenHeight / 2 + 80, Paint.Align.CENTER);
     }
 
     private void drawPlane(Canvas canvas) {
-        float drawX = plane.getX() - cameraX - planeBitmap.getWidth() / 2;
-        float drawY = plane.getY() - planeBitmap.getHeight() / 2;
-
-        canvas.save();
+        float centerX = frame.getInterpolatedPlaneX(interpolationAlpha) - renderCameraX;
+        float centerY = frame.getInterpolatedPlaneY(interpolationAlpha);
 
         // Calculate rotation based on velocity
         float angle = 0;
-        if (Math.abs(plane.getVelocityY()) > 10) {
-            angle = (float) Math.toDegrees(Math.atan2(plane.getVelocityY(), plane.getVelocityX()));
+        if (Math.abs(frame.planeVelocityY) > 10) {
+            angle = (float) Math.toDegrees(Math.atan2(frame.planeVelocityY, frame.planeVelocityX));
             angle = Math.max(-30, Math.min(30, angle));
         }
 
-        // Rotate canvas around plane center
-        canvas.rotate(angle, drawX + planeBitmap.getWidth() / 2, drawY + planeBitmap.getHeight() / 2);
-        canvas.drawBitmap(planeBitmap, drawX, drawY, paint);
+        // Pre-rotated frame: a plain blit, no canvas transform
+        RotatedSpriteCache frames = planeFrames;
+        if (frames != null && frames.isReady()) {
+            frames.draw(canvas, angle, centerX, centerY, paint);
+            return;
+        }
 
+        if (frames == null) {
+            rebuildPlaneFramesIfRoom();
+        }
+
+        // Still building or evicted: rotate canvas around plane center
+        float drawX = centerX - planeSprite.getWidth() / 2;
+        float drawY = centerY - planeSprite.getHeight() / 2;
+        canvas.save();
+        canvas.rotate(angle, centerX, centerY);
+        planeSprite.draw(canvas, drawX, drawY, paint);
         canvas.restore();
     }
 
-    private void drawDebugInfo(Canvas canvas) {
-        Paint debugPaint = new Paint();
-        debugPaint.setColor(Color.WHITE);
-        debugPaint.setTextSize(30);
-        debugPaint.setShadowLayer(2, 1, 1, Color.BLACK);
+    /**
+     * Build the plane rotations again after the MemoryBudget evicted them,
+     * once the budget has room for them (render thread)
+     * Checked every few seconds, so a trim isn't undone straight away.
+     */
+    private void rebuildPlaneFramesIfRoom() {
+        SpriteAtlas.Region source = planeSource;
+        if (source == null) return;
+        long now = System.nanoTime();
+        if (now - planeFramesCheckedAt < PLANE_FRAMES_RETRY_NANOS) return;
+        planeFramesCheckedAt = now;
+        if (memoryBudget.getTotalBytes() + evictedPlaneFrameBytes > memoryBudget.getBudgetBytes()) return;
+
+        android.util.Log.i("GameSurfaceView", "Memory available again: rebuilding plane rotations");
+        planeFrames = createPlaneFrames(source, surfaceHardwareCanvas && !hardwareCanvasFailed);
+        memoryBudget.touch(planeFrameMemory);
+    }
 
-        canvas.drawText(String.format("Time: %.1fs", survivalTimeSeconds), 20, screenHeight - 100, debugPaint);
-        canvas.drawText(String.format("Speed: %.0f", plane.getSpeed()), 20, screenHeight - 60, debugPaint);
-        canvas.drawText(String.format("Distance: %.0fm", plane.getX() / 10), 20, screenHeight - 20, debugPaint);
+    /**
+     * Bytes held by the game's own bitmaps, plane rotations excluded
+     * Also read by the MemoryBudget from other threads, hence the local copies.
+     */
+    private long getBitmapByteCount() {
+        long bytes = 0;
+        ParallaxBackground background = parallax;
+        if (background != null) bytes += background.getByteCount();
+        SpriteAtlas atlas = spriteAtlas;
+        if (atlas != null) bytes += atlas.getByteCount();
+        SpriteAtlas.Region source = planeSource;
+        if (source != null && source != planeSprite) bytes += source.page.getAllocationByteCount();
+        if (titleFont != null) {
+            bytes += titleFont.getByteCount() + subtitleFont.getByteCount() + gameOverFont.getByteCount()
+                    + statsFont.getByteCount() + buttonFont.getByteCount() + coinCounterFont.getByteCount();
+        }
+        bytes += startLayer.getByteCount() + gameOverLayer.getByteCount();
+        return bytes;
     }
 
     private void drawCoinCounter(Canvas canvas) {
-        Paint coinPaint = new Paint();
-        coinPaint.setColor(Color.WHITE);
-        coinPaint.setTextSize(40);
-        coinPaint.setShadowLayer(2, 1, 1, Color.BLACK);
-        coinPaint.setTextAlign(Paint.Align.CENTER);
-
-        String text = "Coins: " + coinCount;
-        canvas.drawText(text, screenWidth / 2f, 60, coinPaint);
+        coinCounterFont.draw(canvas, "Coins: ", frame.coinCount, screenWidth / 2f, 60, Paint.Align.CENTER);
     }
 
     private void drawGameOver(Canvas canvas) {
-        Typeface customTypeface = ResourcesCompat.getFont(context, R.font.pixelboy);
-
         // Semi-transparent overlay
-        Paint overlayPaint = new Paint();
-        overlayPaint.setColor(Color.argb(180, 0, 0, 0));
+        // Kept out of the layer so the layer is only as big as its content
         canvas.drawRect(0, 0, screenWidth, screenHeight, overlayPaint);
 
-        // Stroke paint (black outline)
-        Paint strokePaint = new Paint();
-        strokePaint.setColor(Color.BLACK);
-        strokePaint.setTextSize(100);
-        strokePaint.setTextAlign(Paint.Align.CENTER);
-        strokePaint.setTypeface(customTypeface);
-        strokePaint.setStyle(Paint.Style.STROKE);
-        strokePaint.setStrokeWidth(10);
+        // Stats
+        statsText.setLength(0);
+        statsText.append("Distance: ");
+        PerformanceHud.appendFixed(statsText, frame.planeX / 10, 0);
+        statsText.append("m | Time: ");
+        PerformanceHud.appendFixed(statsText, frame.survivalTimeSeconds, 1);
+        statsText.append('s');
+
+        coinsText.setLength(0);
+        if (coinSprite != null) {
+            coinsText.append("Coins: ").append(frame.coinCount);
+        }
 
-        // Fill paint (red text)
-        Paint fillPaint = new Paint();
-        fillPaint.setColor(Color.RED);
-        fillPaint.setTextSize(100);
-        fillPaint.setTextAlign(Paint.Align.CENTER);
-        fillPaint.setTypeface(customTypeface);
+        // Re-render only when the final score differs from the cached one
+        layerSignature.setLength(0);
+        layerSignature.append(statsText).append('\n').append(coinsText);
+        if (!gameOverLayer.isCurrent(layerSignature, screenWidth, screenHeight)) {
+            layerBounds.setEmpty();
+            gameOverFont.addBounds(layerBounds, "GAME OVER!", screenWidth / 2, screenHeight / 2 - 150, Paint.Align.CENTER);
+            statsFont.addBounds(layerBounds, statsText, screenWidth / 2, screenHeight / 2 - 50, Paint.Align.CENTER);
+            statsFont.addBounds(layerBounds, coinsText, screenWidth / 2, screenHeight / 2 + 20, Paint.Align.CENTER);
+            addGameOverButtonBounds(layerBounds);
+            gameOverLayer.update(layerSignature, screenWidth, screenHeight, layerBounds, gameOverRenderer);
+        }
+        gameOverLayer.draw(canvas);
+    }
 
+    private void renderGameOver(Canvas canvas) {
         // Game Over text
-        canvas.drawText("GAME OVER!", screenWidth / 2, screenHeight / 2 - 150, strokePaint);
-        canvas.drawText("GAME OVER!", screenWidth / 2, screenHeight / 2 - 150, fillPaint);
+        gameOverFont.draw(canvas, "GAME OVER!", screenWidth / 2, screenHeight / 2 - 150, Paint.Align.CENTER);
 
         // Stats
-        fillPaint.setColor(Color.WHITE);
-        fillPaint.setTextSize(50);
-        strokePaint.setTextSize(50);
-        strokePaint.setStrokeWidth(6);
+        statsFont.draw(canvas, statsText, screenWidth / 2, screenHeight / 2 - 50, Paint.Align.CENTER);
+        statsFont.draw(canvas, coinsText, screenWidth / 2, screenHeight / 2 + 20, Paint.Align.CENTER);
 
-        String stats = String.format("Distance: %.0fm | Time: %.1fs", plane.getX() / 10, survivalTimeSeconds);
-        canvas.drawText(stats, screenWidth / 2, screenHeight / 2 - 50, strokePaint);
-        canvas.drawText(stats, screenWidth / 2, screenHeight / 2 - 50, fillPaint);
+        // Draw buttons
+        drawGameOverButtons(canvas);
+    }
 
-        if (coinSprite != null) {
-            String coinText = "Coins: " + coinCount;
-            canvas.drawText(coinText, screenWidth / 2, screenHeight / 2 + 20, strokePaint);
-            canvas.drawText(coinText, screenWidth / 2, screenHeight / 2 + 20, fillPaint);
-        }
+    /**
+     * Area covered by the game over buttons, shadows and borders included
+     * Uses the same layout as drawGameOverButtons()
+     */
+    private void addGameOverButtonBounds(Rect bounds) {
+        int buttonWidth = 250;
+        int buttonHeight = 80;
+        int buttonSpacing = 30;
+        int totalWidth = (buttonWidth * 2) + buttonSpacing;
+        int startX = (screenWidth - totalWidth) / 2;
+        int buttonY = screenHeight / 2 + 100;
 
-        // Draw buttons
-        drawGameOverButtons(canvas, customTypeface);
+        // 3px of border stroke outside each button, 6px of shadow below and right
+        bounds.union(startX - 3, buttonY - 3, startX + totalWidth + 6, buttonY + buttonHeight + 6);
     }
 
     /**
      * Draw restart and main menu buttons on game over screen
      */
-    private void drawGameOverButtons(Canvas canvas, Typeface customTypeface) {
+    private void drawGameOverButtons(Canvas canvas) {
         // Button dimensions
         int buttonWidth = 250;
         int buttonHeight = 80;
@@ -700,43 +1651,31 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         int borderColor = 0xFF2E5C8A;
         int shadowColor = 0xFF1A3A5A;
 
-        Paint buttonPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        Paint borderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        borderPaint.setStyle(Paint.Style.STROKE);
-        borderPaint.setStrokeWidth(6);
-
-        Paint shadowPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        shadowPaint.setColor(shadowColor);
-
-        Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        textPaint.setColor(Color.WHITE);
-        textPaint.setTextSize(48);
-        textPaint.setTextAlign(Paint.Align.CENTER);
-        textPaint.setTypeface(customTypeface);
+        buttonShadowPaint.setColor(shadowColor);
 
         // Draw Restart button
         // Shadow
-        canvas.drawRect(startX + 6, buttonY + 6, startX + buttonWidth + 6, buttonY + buttonHeight + 6, shadowPaint);
+        canvas.drawRect(startX + 6, buttonY + 6, startX + buttonWidth + 6, buttonY + buttonHeight + 6, buttonShadowPaint);
         // Button
         buttonPaint.setColor(restartColor);
         canvas.drawRect(startX, buttonY, startX + buttonWidth, buttonY + buttonHeight, buttonPaint);
         // Border
-        borderPaint.setColor(borderColor);
-        canvas.drawRect(startX, buttonY, startX + buttonWidth, buttonY + buttonHeight, borderPaint);
+        buttonBorderPaint.setColor(borderColor);
+        canvas.drawRect(startX, buttonY, startX + buttonWidth, buttonY + buttonHeight, buttonBorderPaint);
         // Text
-        canvas.drawText("RESTART", startX + buttonWidth / 2, buttonY + buttonHeight / 2 + 16, textPaint);
+        buttonFont.draw(canvas, "RESTART", startX + buttonWidth / 2, buttonY + buttonHeight / 2 + 16, Paint.Align.CENTER);
 
         // Draw Main Menu button
         int mainMenuX = startX + buttonWidth + buttonSpacing;
         // Shadow
-        canvas.drawRect(mainMenuX + 6, buttonY + 6, mainMenuX + buttonWidth + 6, buttonY + buttonHeight + 6, shadowPaint);
+        canvas.drawRect(mainMenuX + 6, buttonY + 6, mainMenuX + buttonWidth + 6, buttonY + buttonHeight + 6, buttonShadowPaint);
         // Button
         buttonPaint.setColor(mainMenuColor);
         canvas.drawRect(mainMenuX, buttonY, mainMenuX + buttonWidth, buttonY + buttonHeight, buttonPaint);
         // Border
-        canvas.drawRect(mainMenuX, buttonY, mainMenuX + buttonWidth, buttonY + buttonHeight, borderPaint);
+        canvas.drawRect(mainMenuX, buttonY, mainMenuX + buttonWidth, buttonY + buttonHeight, buttonBorderPaint);
         // Text
-        canvas.drawText("MAIN MENU", mainMenuX + buttonWidth / 2, buttonY + buttonHeight / 2 + 16, textPaint);
+        buttonFont.draw(canvas, "MAIN MENU", mainMenuX + buttonWidth / 2, buttonY + buttonHeight / 2 + 16, Paint.Align.CENTER);
     }
 
     /**
@@ -785,26 +1724,20 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         }
 
         // Get obstacle set based on map
-        ObstacleSet obstacleSet = mapType.equals("CITY") ? cityObstacles : forestObstacles;
+        ObstacleSet obstacleSet = this.obstacleSet;
         if (obstacleSet == null || obstacleSet.obstacles.isEmpty()) return;
 
         // Pick a random obstacle definition
         ObstacleDefinition def = obstacleSet.getRandom(random);
         if (def == null) return;
 
-        // Load the sprite
-        Bitmap baseSprite;
-        try {
-            baseSprite = BitmapFactory.decodeResource(getResources(), def.resourceId);
-            if (baseSprite == null) return;
-        } catch (Exception e) {
-            return;
-        }
+        // Shared sprite, already scaled to its screen size
+        SpriteAtlas.Region sprite = def.sprite;
+        if (sprite == null) return;
 
         // Calculate dimensions
-        float height = screenHeight * def.heightRatio;
-        float aspect = (float) baseSprite.getWidth() / (float) baseSprite.getHeight();
-        float width = height * aspect;
+        float height = sprite.getHeight();
+        float width = sprite.getWidth();
 
         // Calculate position
         float x = cameraX + screenWidth + width; // Spawn off right edge
@@ -828,11 +1761,11 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
             y = minY + random.nextFloat() * (maxY - minY);
         }
 
-        obstacles.add(new Obstacle(x, y, width, height, baseSprite));
+        obstacles.add(new Obstacle(x, y, width, height, sprite));
     }
 
     private void updateObstacles(float deltaTime) {
-        long now = System.currentTimeMillis();
+        long now = getSimulationTimeMs();
 
         // Spawn new obstacle based on delay
         if (now - lastObstacleSpawnTime > obstacleSpawnDelayMs) {
@@ -852,8 +1785,16 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
     }
 
     private void drawObstacles(Canvas canvas) {
-        for (Obstacle o : obstacles) {
-            o.draw(canvas, cameraX);
+        // Obstacles spawn past the right edge and leave only once fully past the left one
+        float viewRight = renderCameraX + screenWidth;
+        for (int i = 0; i < frame.obstacleCount; i++) {
+            Obstacle o = frame.obstacles.get(i);
+            if (o.isInView(renderCameraX, 0, viewRight, screenHeight, interpolationAlpha)) {
+                o.draw(canvas, renderCameraX, interpolationAlpha);
+                drawnEntityCount++;
+            } else {
+                culledEntityCount++;
+            }
         }
     }
 
@@ -862,8 +1803,8 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
     private void spawnCoin() {
         if (screenWidth == 0 || screenHeight == 0 || coinSprite == null) return;
 
-        // Coin size relative to screen
-        float coinSize = screenHeight * 0.06f; // 6% of screen height
+        // Coin size relative to screen, fixed when the atlas was packed
+        float coinSize = coinSprite.getHeight(); // 6% of screen height
         float width = coinSize;
         float height = coinSize;
 
@@ -921,7 +1862,7 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
     }
 
     private void updateCoins(float deltaTime) {
-        long now = System.currentTimeMillis();
+        long now = getSimulationTimeMs();
 
         // Spawn new coin based on delay
         if (now - lastCoinSpawnTime > coinSpawnDelayMs) {
@@ -941,8 +1882,15 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
     }
 
     private void drawCoins(Canvas canvas) {
-        for (Coin c : coins) {
-            c.draw(canvas, cameraX);
+        float viewRight = renderCameraX + screenWidth;
+        for (int i = 0; i < frame.coinSlotCount; i++) {
+            Coin c = frame.coins.get(i);
+            if (c.isInView(renderCameraX, 0, viewRight, screenHeight, interpolationAlpha)) {
+                c.draw(canvas, renderCameraX, interpolationAlpha);
+                drawnEntityCount++;
+            } else {
+                culledEntityCount++;
+            }
         }
     }
 
@@ -963,7 +1911,7 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
 
     // Plane bounds in WORLD coordinates
     private Rect getPlaneBounds() {
-        if (plane == null || planeBitmap == null) {
+        if (plane == null || planeSprite == null) {
             return new Rect(0, 0, 0, 0);
         }
 
@@ -971,8 +1919,8 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
         float centerY = plane.getY();
 
         // Use smaller hitbox for more forgiving gameplay
-        int hitboxWidth = planeBitmap.getWidth() / 2;
-        int hitboxHeight = planeBitmap.getHeight() / 2;
+        int hitboxWidth = planeSprite.getWidth() / 2;
+        int hitboxHeight = planeSprite.getHeight() / 2;
 
         int left = (int) (centerX - hitboxWidth / 2f);
         int top = (int) (centerY - hitboxHeight / 2f);
@@ -1014,8 +1962,14 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
             gameOverListener.onGameOver(finalDistance, coinCount);
         }
 
-        // The game will continue running but won't accept input
-        // Player can use pause menu to restart or exit
+        // Nothing moves on the game over screen: park both threads after one last frame
+        // Player can use the game over buttons or pause menu to restart or exit
+        synchronized (stateLock) {
+            if (threadState == ThreadState.RUNNING) {
+                setThreadState(ThreadState.IDLE);
+            }
+        }
+        requestSimulation();
     }
 
     /**
@@ -1065,17 +2019,14 @@ public class GameSurfaceView extends SurfaceView implements SurfaceHolder.Callba
                 if (isGameOver) {
                     // Handle game over button clicks
                     return handleGameOverTouch(event.getX(), event.getY());
-                } else if (!isFlying) {
-                    // Launch the plane
+                } else if (!isFlying && !assetsLoading) {
+                    // Launch the plane; the simulation thread applies it before its next step
+                    launchRequested = true;
                     isFlying = true;
-                    survivalTimeSeconds = 0f;
+                    setThreadState(ThreadState.RUNNING);
                     if (launchListener != null) {
                         launchListener.onLaunch();
                     }
-                    plane.launch(300, -80);
-                    lastFrameTime = System.nanoTime();
-                    lastObstacleSpawnTime = System.currentTimeMillis();
-                    lastCoinSpawnTime = System.currentTimeMillis();
                     return true;
                 }
                 return false;
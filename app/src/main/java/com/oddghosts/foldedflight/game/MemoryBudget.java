@@ -0,0 +1,242 @@
+package com.oddghosts.foldedflight.game;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accounts for the bitmap memory each part of the app holds, and keeps it under a budget
+ *
+ * Owners (the game surface, the bitmap pool, menu cards) register with a
+ * name and report their bytes from getAllocationByteCount(). Owners that
+ * hold rebuildable caches can be evicted: when the total goes over budget,
+ * or the system asks through onTrimMemory(), the least recently used ones
+ * are evicted first until the total fits. One instance per process,
+ * registered with the application context on first use. Thread safe.
+ */
+public final class MemoryBudget implements ComponentCallbacks2 {
+
+    private static final long MB = 1024L * 1024L;
+
+    private static MemoryBudget instance;
+
+    /**
+     * Something that holds bitmaps
+     */
+    public interface Owner {
+        /**
+         * Bytes held right now, by getAllocationByteCount()
+         */
+        long getBitmapBytes();
+
+        /**
+         * Drop whatever can be rebuilt later (only called on evictable owners)
+         * @return Bytes freed
+         */
+        long evict();
+    }
+
+    private static final class Registration {
+        final String name;
+        final Owner owner;
+        final boolean evictable;
+        long lastUsed;
+
+        Registration(String name, Owner owner, boolean evictable, long lastUsed) {
+            this.name = name;
+            this.owner = owner;
+            this.evictable = evictable;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private final List<Registration> owners = new ArrayList<>();
+    private long budgetBytes;
+    private long useCounter = 0; // Logical clock for LRU order
+    private int evictionCount = 0;
+    private int lastTrimLevel = -1;
+
+    private MemoryBudget(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * The process-wide budget, created and hooked to onTrimMemory on first use
+     */
+    public static synchronized MemoryBudget get(Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            instance = new MemoryBudget(getDefaultBudget(app));
+            app.registerComponentCallbacks(instance);
+
+            // The bitmap pool is pure cache: first to go
+            final BitmapPool pool = BitmapPool.shared();
+            instance.register("BitmapPool", new Owner() {
+                @Override
+                public long getBitmapBytes() {
+                    return pool.getPooledBytes();
+                }
+
+                @Override
+                public long evict() {
+                    long bytes = pool.getPooledBytes();
+                    pool.clear();
+                    return bytes;
+                }
+            }, true);
+        }
+        return instance;
+    }
+
+    /**
+     * A quarter of the per-app heap class (half that on low-RAM devices);
+     * bitmap pixels live outside the Java heap, but this scales with the device
+     */
+    private static long getDefaultBudget(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null) return 64 * MB;
+        long memoryClass = activityManager.getMemoryClass() * MB;
+        return activityManager.isLowRamDevice() ? memoryClass / 8 : memoryClass / 4;
+    }
+
+    /**
+     * Start accounting for an owner
+     * @param evictable Whether evict() may be called to get under budget
+     */
+    public synchronized void register(String name, Owner owner, boolean evictable) {
+        for (Registration registration : owners) {
+            if (registration.owner == owner) return;
+        }
+        owners.add(new Registration(name, owner, evictable, ++useCounter));
+    }
+
+    public synchronized void unregister(Owner owner) {
+        for (int i = 0; i < owners.size(); i++) {
+            if (owners.get(i).owner == owner) {
+                owners.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Mark an owner as just used, so it is evicted after the others
+     */
+    public synchronized void touch(Owner owner) {
+        for (Registration registration : owners) {
+            if (registration.owner == owner) {
+                registration.lastUsed = ++useCounter;
+                return;
+            }
+        }
+    }
+
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        trimTo(budgetBytes);
+    }
+
+    public synchronized long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * Bitmap bytes held by every owner
+     */
+    public synchronized long getTotalBytes() {
+        long total = 0;
+        for (Registration registration : owners) {
+            total += registration.owner.getBitmapBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Evict least recently used caches if the owners hold more than the budget
+     * Owners call this after allocating.
+     */
+    public synchronized void enforce() {
+        trimTo(budgetBytes);
+    }
+
+    /**
+     * One line per owner plus totals, for logs and debug screens
+     */
+    public synchronized String getDiagnostics() {
+        StringBuilder sb = new StringBuilder();
+        long total = 0;
+        for (Registration registration : owners) {
+            long bytes = registration.owner.getBitmapBytes();
+            total += bytes;
+            sb.append(registration.name)
+                    .append(registration.evictable ? " (cache)" : "")
+                    .append(": ").append(bytes / 1024).append(" KB\n");
+        }
+        sb.append("Total ").append(total / 1024).append(" KB of ")
+                .append(budgetBytes / 1024).append(" KB budget, ")
+                .append(evictionCount).append(" eviction(s), last trim level ").append(lastTrimLevel);
+        return sb.toString();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void onTrimMemory(int level) {
+        long target;
+        synchronized (this) {
+            lastTrimLevel = level;
+            if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+                // About to be killed, or the foreground is struggling: keep only what's needed to draw
+                target = 0;
+            } else if (level == TRIM_MEMORY_UI_HIDDEN || level == TRIM_MEMORY_RUNNING_LOW) {
+                target = budgetBytes / 2;
+            } else {
+                target = budgetBytes * 3 / 4;
+            }
+            trimTo(target);
+        }
+        android.util.Log.i("MemoryBudget", "onTrimMemory(" + level + ")\n" + getDiagnostics());
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    /**
+     * Evict caches, least recently used first, until the total is at most target
+     */
+    private void trimTo(long target) {
+        long total = 0;
+        for (Registration registration : owners) {
+            total += registration.owner.getBitmapBytes();
+        }
+
+        // Each cache is evicted at most once per trim
+        List<Registration> evicted = new ArrayList<>();
+        while (total > target) {
+            Registration oldest = null;
+            for (Registration registration : owners) {
+                if (!registration.evictable || evicted.contains(registration)) continue;
+                if (registration.owner.getBitmapBytes() == 0) continue;
+                if (oldest == null || registration.lastUsed < oldest.lastUsed) {
+                    oldest = registration;
+                }
+            }
+            if (oldest == null) break; // Only essentials left
+
+            evicted.add(oldest);
+            long freed = oldest.owner.evict();
+            evictionCount++;
+            total -= freed;
+            android.util.Log.i("MemoryBudget", "Evicted " + oldest.name + ": " + freed / 1024 + " KB");
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.oddghosts.foldedflight.game;
 
-import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Rect;
 
@@ -13,35 +12,59 @@ import android.graphics.Rect;
 public class Obstacle {
 
     private float x;
+    private float previousX; // x before the last update, for render interpolation
     private float y;
     private float width;
     private float height;
-    private Bitmap bitmap;
+    private SpriteAtlas.Region sprite;
 
-    public Obstacle(float x, float y, float width, float height, Bitmap baseSprite) {
+    /**
+     * Empty obstacle used as a reusable snapshot slot
+     */
+    Obstacle() {
+    }
+
+    /**
+     * Copy another obstacle's state; the sprite is shared, not duplicated
+     */
+    void copyFrom(Obstacle other) {
+        this.x = other.x;
+        this.previousX = other.previousX;
+        this.y = other.y;
+        this.width = other.width;
+        this.height = other.height;
+        this.sprite = other.sprite;
+    }
+
+    /**
+     * @param sprite Atlas region already packed at width x height
+     */
+    Obstacle(float x, float y, float width, float height, SpriteAtlas.Region sprite) {
         this.x = x;
+        this.previousX = x;
         this.y = y;
         this.width = width;
         this.height = height;
-
-        // Scale sprite to obstacle size.
-        // filter = false to keep pixel art sharp (no blur).
-        this.bitmap = Bitmap.createScaledBitmap(
-                baseSprite,
-                (int) width,
-                (int) height,
-                false
-        );
+        this.sprite = sprite;
     }
 
     public void update(float deltaTime, float speedX) {
+        previousX = x;
         x += speedX * deltaTime;
     }
 
-    public void draw(Canvas canvas, float cameraX) {
-        float drawLeft = x - cameraX;
+    public void draw(Canvas canvas, float cameraX, float alpha) {
+        float drawLeft = previousX + (x - previousX) * alpha - cameraX;
         float drawTop = y;
-        canvas.drawBitmap(bitmap, drawLeft, drawTop, null); // null paint: no extra filtering
+        sprite.draw(canvas, drawLeft, drawTop, null); // null paint: no extra filtering
+    }
+
+    /**
+     * Whether the sprite's world AABB at this render alpha overlaps the view rectangle
+     */
+    boolean isInView(float viewLeft, float viewTop, float viewRight, float viewBottom, float alpha) {
+        float left = previousX + (x - previousX) * alpha;
+        return left < viewRight && left + width > viewLeft && y < viewBottom && y + height > viewTop;
     }
 
     public boolean isOffScreen(float cameraX) {
@@ -0,0 +1,85 @@
+package com.oddghosts.foldedflight.game;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+/**
+ * Static overlay content rendered once into a bitmap and reused every frame
+ *
+ * The layer covers only the bounds its content needs, not the whole
+ * screen. It is re-rendered when its signature (the text or values it
+ * shows) or the screen size changes; otherwise drawing it is one blit.
+ */
+class OverlayLayer {
+
+    /**
+     * Draws the layer's content in screen coordinates
+     */
+    interface Renderer {
+        void render(Canvas canvas);
+    }
+
+    private Bitmap bitmap;
+    private final Canvas layerCanvas = new Canvas();
+    private final Rect bounds = new Rect();
+    private String signature;
+    private int screenWidth;
+    private int screenHeight;
+
+    /**
+     * True if the layer already shows this content at this screen size
+     * Compares without allocating, so it is safe to call every frame.
+     */
+    boolean isCurrent(CharSequence signature, int screenWidth, int screenHeight) {
+        return bitmap != null
+                && this.screenWidth == screenWidth
+                && this.screenHeight == screenHeight
+                && this.signature != null
+                && this.signature.contentEquals(signature);
+    }
+
+    /**
+     * Render content into the layer
+     * @param bounds Screen area the content draws into
+     */
+    void update(CharSequence signature, int screenWidth, int screenHeight, Rect bounds, Renderer renderer) {
+        int width = Math.max(1, bounds.width());
+        int height = Math.max(1, bounds.height());
+
+        if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            // The old bitmap may still be in a posted hardware frame, so leave it to the GC
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            layerCanvas.setBitmap(bitmap);
+        } else {
+            bitmap.eraseColor(0);
+        }
+
+        layerCanvas.save();
+        layerCanvas.translate(-bounds.left, -bounds.top);
+        renderer.render(layerCanvas);
+        layerCanvas.restore();
+
+        this.bounds.set(bounds);
+        this.signature = signature.toString();
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+    }
+
+    void draw(Canvas canvas) {
+        if (bitmap != null) {
+            canvas.drawBitmap(bitmap, bounds.left, bounds.top, null);
+        }
+    }
+
+    /**
+     * Drop the cached content, e.g. when the surface goes away
+     */
+    void invalidate() {
+        signature = null;
+    }
+
+    int getByteCount() {
+        return bitmap != null ? bitmap.getAllocationByteCount() : 0;
+    }
+}
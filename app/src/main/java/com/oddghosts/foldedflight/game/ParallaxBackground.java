@@ -0,0 +1,409 @@
+package com.oddghosts.foldedflight.game;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scrolling background made of depth layers, each streamed in tiles
+ *
+ * A layer never holds its whole scaled image. The source is cut into
+ * vertical strips, each decoded with BitmapRegionDecoder and scaled into
+ * one of a small ring of tile bitmaps. Tiles ahead of the scroll direction
+ * are decoded on a background thread, so resident memory depends on the
+ * screen size rather than on how wide the source art is. Finished tiles
+ * are saved to the SpriteDiskCache, so later launches at the same size
+ * copy them back instead of decoding. For a hardware canvas, each finished
+ * tile is moved to a HARDWARE bitmap and its software pixels are pooled.
+ *
+ * Owned by the render thread: create, draw and release it there.
+ */
+final class ParallaxBackground {
+
+    private final int screenWidth;
+    private final int screenHeight;
+    private final SpriteDiskCache diskCache; // null to always decode
+    private final boolean hardwareTiles;
+    private final List<Layer> layers = new ArrayList<>();
+
+    private final HandlerThread decodeThread;
+    private final Handler decodeHandler;
+
+    /**
+     * @param hardwareTiles Keep tiles as HARDWARE bitmaps; only a hardware canvas can draw them
+     */
+    ParallaxBackground(int screenWidth, int screenHeight, SpriteDiskCache diskCache, boolean hardwareTiles) {
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        this.diskCache = diskCache;
+        this.hardwareTiles = hardwareTiles;
+
+        decodeThread = new HandlerThread("ParallaxDecoder");
+        decodeThread.start();
+        decodeHandler = new Handler(decodeThread.getLooper());
+    }
+
+    /**
+     * Add a layer drawn behind those added after it
+     * @param scrollFactor How fast it moves relative to the camera (0 = fixed, 1 = with the world)
+     * @param heightRatio Fraction of the screen height it covers, anchored to the bottom
+     */
+    ParallaxBackground addLayer(Resources resources, int resourceId, float scrollFactor, float heightRatio) {
+        try {
+            layers.add(new Layer(resources, resourceId, scrollFactor, heightRatio));
+        } catch (IOException e) {
+            android.util.Log.w("Parallax", "Could not open background layer " + resourceId, e);
+        }
+        return this;
+    }
+
+    boolean matches(int screenWidth, int screenHeight, boolean hardwareTiles) {
+        return this.screenWidth == screenWidth && this.screenHeight == screenHeight
+                && this.hardwareTiles == hardwareTiles;
+    }
+
+    void draw(Canvas canvas, float cameraX) {
+        for (int i = 0; i < layers.size(); i++) {
+            layers.get(i).draw(canvas, cameraX);
+        }
+    }
+
+    /**
+     * Bytes held by decoded tiles across all layers
+     */
+    long getByteCount() {
+        long bytes = 0;
+        for (int i = 0; i < layers.size(); i++) {
+            bytes += layers.get(i).getByteCount();
+        }
+        return bytes;
+    }
+
+    /**
+     * Free the region decoders and pool the tiles once queued decodes finish
+     * The render thread must not draw this background afterwards.
+     */
+    void release() {
+        decodeHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Layer layer : layers) {
+                    layer.decoder.recycle();
+                    for (Slot slot : layer.slots) {
+                        BitmapPool.shared().release(slot.bitmap);
+                        slot.bitmap = null;
+                        slot.hardware = null;
+                    }
+                }
+            }
+        });
+        decodeThread.quitSafely();
+    }
+
+    /**
+     * One tile bitmap in a layer's ring
+     * tile is written last by whichever thread decodes into it, so a reader
+     * that sees its tile number also sees the pixels.
+     */
+    private static final class Slot {
+        Bitmap bitmap;                   // Software pixels, decoded into
+        Bitmap hardware;                 // HARDWARE copy drawn instead, if tiles are moved there
+        int width;                       // Used width; the loop's last tile only fills its left part
+        volatile int tile = -1;          // Tile shown, or -1 while empty or being decoded
+        volatile int pendingTile = -1;   // Tile being decoded into this slot, or -1
+    }
+
+    private final class Layer {
+        final BitmapRegionDecoder decoder;
+        final String name;        // Resource name, for the disk cache
+        final float scrollFactor;
+        final int top;
+        final int height;
+        final float scale;        // Screen pixels per source pixel
+        final int loopWidth;      // Scaled width of the whole image
+        final int tileWidth;
+        final int tileCount;
+        final int sampleSize;
+        final Bitmap.Config config;
+        final Slot[] slots;
+
+        // Scratch, render thread only
+        final int[] visibleTiles;
+        int visibleCount;
+        final Rect source = new Rect();
+        final Rect destination = new Rect();
+
+        Layer(Resources resources, int resourceId, float scrollFactor, float heightRatio) throws IOException {
+            decoder = openDecoder(resources, resourceId);
+            name = resources.getResourceEntryName(resourceId);
+            this.scrollFactor = scrollFactor;
+
+            // Opaque art (e.g. the JPEG city map) needs half the memory per tile
+            config = new SpriteLoader(resources).hasAlpha(resourceId)
+                    ? Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565;
+
+            height = Math.max(1, Math.round(screenHeight * heightRatio));
+            top = screenHeight - height;
+            scale = (float) height / decoder.getHeight();
+            loopWidth = Math.max(1, Math.round(decoder.getWidth() * scale));
+
+            // Half-screen tiles: small enough to decode quickly, few enough to draw cheaply
+            tileWidth = Math.min(loopWidth, Math.max(1, (screenWidth + 1) / 2));
+            tileCount = (loopWidth + tileWidth - 1) / tileWidth;
+
+            // Decode no bigger than needed; the scale to exact size happens when drawing into the tile
+            int sample = 1;
+            while (decoder.getHeight() / (sample * 2) >= height) {
+                sample *= 2;
+            }
+            sampleSize = sample;
+
+            // Enough tiles to cover the screen, plus one being prefetched and one spare
+            int onScreen = screenWidth / tileWidth + 2;
+            slots = new Slot[onScreen + 2];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = new Slot();
+            }
+            visibleTiles = new int[onScreen * ((screenWidth / loopWidth) + 2)];
+        }
+
+        void draw(Canvas canvas, float cameraX) {
+            // Where the image loop starts on screen
+            float offset = (cameraX * scrollFactor) % loopWidth;
+            if (offset < 0) offset += loopWidth;
+            float loopX = -offset;
+
+            // Find every tile on screen first, so loading one never evicts another
+            visibleCount = 0;
+            int lastTile = 0;
+            for (float x = loopX; x < screenWidth; x += loopWidth) {
+                for (int tile = 0; tile < tileCount; tile++) {
+                    float left = x + tile * tileWidth;
+                    if (left >= screenWidth) break;
+                    if (left + tileWidth <= 0) continue;
+                    markVisible(tile);
+                    lastTile = tile;
+                }
+            }
+
+            for (float x = loopX; x < screenWidth; x += loopWidth) {
+                for (int tile = 0; tile < tileCount; tile++) {
+                    float left = x + tile * tileWidth;
+                    if (left >= screenWidth) break;
+                    if (left + tileWidth <= 0) continue;
+
+                    Slot slot = findSlot(tile);
+                    if (slot == null && !isLoading(tile)) {
+                        // Not prefetched in time (first frame or a jump): decode now
+                        slot = claimSlot(tile);
+                        if (slot != null) {
+                            decodeInto(slot, tile);
+                        }
+                    }
+                    // A tile still decoding on the other thread is skipped; the sky shows for a frame
+                    if (slot != null && slot.tile == tile) {
+                        int drawLeft = Math.round(left);
+                        source.set(0, 0, slot.width, height);
+                        destination.set(drawLeft, top, drawLeft + slot.width, top + height);
+                        canvas.drawBitmap(slot.hardware != null ? slot.hardware : slot.bitmap,
+                                source, destination, null);
+                    }
+                }
+            }
+
+            // Prefetch the tile about to scroll in from the right
+            int next = (lastTile + 1) % tileCount;
+            if (findSlot(next) == null && !isLoading(next)) {
+                final Slot slot = claimSlot(next);
+                if (slot != null) {
+                    final int tile = next;
+                    decodeHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            decodeInto(slot, tile);
+                        }
+                    });
+                }
+            }
+        }
+
+        private void markVisible(int tile) {
+            if (visibleCount < visibleTiles.length) {
+                visibleTiles[visibleCount++] = tile;
+            }
+        }
+
+        private boolean isVisible(int tile) {
+            for (int i = 0; i < visibleCount; i++) {
+                if (visibleTiles[i] == tile) return true;
+            }
+            return false;
+        }
+
+        private Slot findSlot(int tile) {
+            for (Slot slot : slots) {
+                if (slot.tile == tile) return slot;
+            }
+            return null;
+        }
+
+        private boolean isLoading(int tile) {
+            for (Slot slot : slots) {
+                if (slot.pendingTile == tile) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Take a slot that isn't on screen or busy and mark it as loading tile
+         */
+        private Slot claimSlot(int tile) {
+            Slot fallback = null;
+            for (Slot slot : slots) {
+                if (slot.pendingTile != -1) continue;
+                if (slot.tile == -1) {
+                    fallback = slot;
+                    break;
+                }
+                if (!isVisible(slot.tile) && fallback == null) {
+                    fallback = slot;
+                }
+            }
+            if (fallback != null) {
+                fallback.tile = -1;
+                fallback.pendingTile = tile;
+            }
+            return fallback;
+        }
+
+        /**
+         * Decode one strip of the source into a slot (render or decode thread)
+         */
+        private void decodeInto(Slot slot, int tile) {
+            int left = tile * tileWidth;
+            int width = Math.min(tileWidth, loopWidth - left);
+
+            // The last frame may still use the old HARDWARE tile, so it is left to the GC
+            slot.hardware = null;
+            if (slot.bitmap == null) {
+                slot.bitmap = BitmapPool.shared().acquire(tileWidth, height, config);
+            }
+
+            // Saved by an earlier launch at this size: a straight pixel copy
+            String tileName = name + "_tile" + tile;
+            if (diskCache != null && diskCache.readInto(tileName, slot.bitmap)) {
+                finishTile(slot, tile, width);
+                return;
+            }
+
+            Rect region = new Rect(
+                    (int) Math.floor(left / scale),
+                    0,
+                    Math.min(decoder.getWidth(), (int) Math.ceil((left + width) / scale)),
+                    decoder.getHeight());
+
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = sampleSize;
+            options.inPreferredConfig = config;
+            // Strips are short-lived, so decode into a pooled buffer (a pixel of slack covers rounding)
+            options.inBitmap = BitmapPool.shared().acquireForDecode(
+                    (region.width() + sampleSize - 1) / sampleSize + 1,
+                    (region.height() + sampleSize - 1) / sampleSize + 1, config);
+
+            Bitmap strip = null;
+            try {
+                strip = decodeRegion(region, options);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                android.util.Log.w("Parallax", "Could not decode background tile " + tile, e);
+            }
+
+            if (strip != null) {
+                slot.bitmap.eraseColor(0);
+                // null paint: nearest neighbour keeps the pixel art sharp
+                new Canvas(slot.bitmap).drawBitmap(strip, null, new Rect(0, 0, width, height), null);
+                BitmapPool.shared().release(strip);
+                if (diskCache != null) {
+                    diskCache.write(tileName, slot.bitmap);
+                }
+                finishTile(slot, tile, width);
+                return;
+            }
+
+            slot.width = width;
+            slot.pendingTile = -1;
+            slot.tile = -1;
+        }
+
+        /**
+         * Publish a filled slot, first moving it to a HARDWARE bitmap if asked to
+         */
+        private void finishTile(Slot slot, int tile, int width) {
+            if (hardwareTiles) {
+                Bitmap copy = slot.bitmap.copy(Bitmap.Config.HARDWARE, false);
+                if (copy != null) {
+                    android.util.Log.d("Parallax", name + " tile " + tile + " moved to a hardware bitmap, "
+                            + slot.bitmap.getAllocationByteCount() / 1024 + " KB off the heap");
+                    // The next decode into this slot takes a buffer from the pool again
+                    BitmapPool.shared().release(slot.bitmap);
+                    slot.bitmap = null;
+                    slot.hardware = copy;
+                }
+            }
+            slot.width = width;
+            slot.pendingTile = -1;
+            slot.tile = tile;
+        }
+
+        /**
+         * Decode, falling back to a fresh allocation if the decoder rejects options.inBitmap
+         */
+        private Bitmap decodeRegion(Rect region, BitmapFactory.Options options) {
+            Bitmap reuse = options.inBitmap;
+            try {
+                Bitmap strip = decoder.decodeRegion(region, options);
+                if (reuse != null && strip != reuse) {
+                    BitmapPool.shared().release(reuse);
+                }
+                return strip;
+            } catch (IllegalArgumentException e) {
+                if (reuse == null) throw e;
+                BitmapPool.shared().release(reuse);
+                options.inBitmap = null;
+                return decoder.decodeRegion(region, options);
+            }
+        }
+
+        long getByteCount() {
+            long bytes = 0;
+            for (Slot slot : slots) {
+                if (slot.bitmap != null) bytes += slot.bitmap.getAllocationByteCount();
+                if (slot.hardware != null) bytes += slot.hardware.getAllocationByteCount();
+            }
+            return bytes;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static BitmapRegionDecoder openDecoder(Resources resources, int resourceId) throws IOException {
+        InputStream stream = resources.openRawResource(resourceId);
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                return BitmapRegionDecoder.newInstance(stream);
+            }
+            return BitmapRegionDecoder.newInstance(stream, false);
+        } finally {
+            stream.close();
+        }
+    }
+}
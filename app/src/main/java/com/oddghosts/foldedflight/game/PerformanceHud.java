@@ -0,0 +1,230 @@
+package com.oddghosts.foldedflight.game;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Debug;
+
+/**
+ * On-screen flight info and optional performance overlay
+ *
+ * Text is built in a reused StringBuilder and drawn from a reused char
+ * array, so drawing the HUD allocates nothing per frame and doesn't skew
+ * the GC numbers it shows. Runtime stats are sampled once per second.
+ */
+public class PerformanceHud {
+
+    private static final long SAMPLE_INTERVAL_NANOS = 1000000000L;
+    private static final int LINE_HEIGHT = 36;
+
+    // Paint objects
+    private final Paint textPaint;
+    private final Paint panelPaint;
+
+    // Reused text buffers
+    private final StringBuilder line = new StringBuilder(96);
+    private char[] chars = new char[96];
+
+    private volatile boolean enabled = false;
+
+    // Frame rate
+    private long lastFrameNanos = 0L;
+    private float currentFps = 0f;
+    private float averageFps = 0f;
+    private long windowStartNanos = 0L;
+    private int framesInWindow = 0;
+
+    // Runtime stats, refreshed once per window
+    private long gcCount = -1L;
+    private long lastBytesAllocated = -1L;
+    private float allocationRateKbPerSecond = 0f;
+    private long bitmapBytes = 0L;
+    private long bitmapBudgetBytes = 0L;
+
+    public PerformanceHud() {
+        textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextSize(30);
+        textPaint.setShadowLayer(2, 1, 1, Color.BLACK);
+
+        panelPaint = new Paint();
+        panelPaint.setColor(Color.argb(140, 0, 0, 0));
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Count a drawn frame
+     * @return True when a new one-second sample was taken, so the caller can
+     * refresh slow-changing values such as setBitmapBytes()
+     */
+    public boolean onFrame(long nowNanos) {
+        if (lastFrameNanos != 0L && nowNanos > lastFrameNanos) {
+            currentFps = 1000000000f / (nowNanos - lastFrameNanos);
+        }
+        lastFrameNanos = nowNanos;
+
+        if (windowStartNanos == 0L) {
+            windowStartNanos = nowNanos;
+        }
+        framesInWindow++;
+
+        long windowNanos = nowNanos - windowStartNanos;
+        if (windowNanos < SAMPLE_INTERVAL_NANOS) return false;
+
+        averageFps = framesInWindow * 1000000000f / windowNanos;
+        if (enabled) {
+            sampleRuntimeStats(windowNanos);
+        }
+        windowStartNanos = nowNanos;
+        framesInWindow = 0;
+        return true;
+    }
+
+    /**
+     * Read ART's GC counters (allocates a little, once per second)
+     */
+    private void sampleRuntimeStats(long windowNanos) {
+        gcCount = parseStat(Debug.getRuntimeStat("art.gc.gc-count"));
+
+        long bytesAllocated = parseStat(Debug.getRuntimeStat("art.gc.bytes-allocated"));
+        if (bytesAllocated >= 0 && lastBytesAllocated >= 0) {
+            allocationRateKbPerSecond = (bytesAllocated - lastBytesAllocated) / 1024f
+                    * (1000000000f / windowNanos);
+        }
+        lastBytesAllocated = bytesAllocated;
+    }
+
+    private static long parseStat(String value) {
+        if (value == null) return -1L;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * @param bytes Bitmap memory held across the app
+     * @param budgetBytes MemoryBudget limit, or 0 to leave it out
+     */
+    public void setBitmapBytes(long bytes, long budgetBytes) {
+        this.bitmapBytes = bytes;
+        this.bitmapBudgetBytes = budgetBytes;
+    }
+
+    /**
+     * Time, speed and distance in the bottom left corner
+     */
+    public void drawFlightInfo(Canvas canvas, int screenHeight, float timeSeconds, float speed, float distance) {
+        line.setLength(0);
+        line.append("Time: ");
+        appendFixed(line, timeSeconds, 1);
+        line.append('s');
+        drawLine(canvas, 20, screenHeight - 100);
+
+        line.setLength(0);
+        line.append("Speed: ");
+        appendFixed(line, speed, 0);
+        drawLine(canvas, 20, screenHeight - 60);
+
+        line.setLength(0);
+        line.append("Distance: ");
+        appendFixed(line, distance, 0);
+        line.append('m');
+        drawLine(canvas, 20, screenHeight - 20);
+    }
+
+    /**
+     * Performance panel below the timer, when enabled
+     */
+    public void drawStats(Canvas canvas, FrameTimingHistogram frameTimes, int drawnCount, int culledCount,
+                          boolean hardwareCanvas) {
+        if (!enabled) return;
+
+        float x = 20;
+        float y = 140;
+        canvas.drawRect(x - 10, y - LINE_HEIGHT, x + 520, y + LINE_HEIGHT * 4 + 10, panelPaint);
+
+        line.setLength(0);
+        line.append("FPS ");
+        appendFixed(line, currentFps, 0);
+        line.append("  avg ");
+        appendFixed(line, averageFps, 1);
+        line.append(hardwareCanvas ? "  HW" : "  SW");
+        drawLine(canvas, x, y);
+
+        line.setLength(0);
+        line.append("Frame ms p50 ");
+        appendFixed(line, frameTimes.getP50Nanos() / 1e6f, 1);
+        line.append(" p95 ");
+        appendFixed(line, frameTimes.getP95Nanos() / 1e6f, 1);
+        line.append(" p99 ");
+        appendFixed(line, frameTimes.getP99Nanos() / 1e6f, 1);
+        drawLine(canvas, x, y + LINE_HEIGHT);
+
+        line.setLength(0);
+        line.append("Sprites drawn ").append(drawnCount).append("  culled ").append(culledCount);
+        drawLine(canvas, x, y + LINE_HEIGHT * 2);
+
+        line.setLength(0);
+        line.append("GC ");
+        if (gcCount >= 0) line.append(gcCount); else line.append('-');
+        line.append("  Alloc ");
+        appendFixed(line, allocationRateKbPerSecond, 0);
+        line.append(" KB/s");
+        drawLine(canvas, x, y + LINE_HEIGHT * 3);
+
+        line.setLength(0);
+        line.append("Bitmaps ");
+        appendFixed(line, bitmapBytes / (1024f * 1024f), 1);
+        if (bitmapBudgetBytes > 0) {
+            line.append(" / ");
+            appendFixed(line, bitmapBudgetBytes / (1024f * 1024f), 0);
+        }
+        line.append(" MB");
+        drawLine(canvas, x, y + LINE_HEIGHT * 4);
+    }
+
+    private void drawLine(Canvas canvas, float x, float y) {
+        int length = line.length();
+        if (chars.length < length) {
+            chars = new char[length * 2];
+        }
+        line.getChars(0, length, chars, 0);
+        canvas.drawText(chars, 0, length, x, y, textPaint);
+    }
+
+    /**
+     * Append a number with a fixed count of decimals without String.format
+     */
+    static void appendFixed(StringBuilder sb, float value, int decimals) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            sb.append('-');
+            return;
+        }
+        if (value < 0) {
+            sb.append('-');
+            value = -value;
+        }
+
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) scale *= 10;
+
+        long scaled = Math.round(value * scale);
+        sb.append(scaled / scale);
+        if (decimals > 0) {
+            sb.append('.');
+            long fraction = scaled % scale;
+            for (long digit = scale / 10; digit > 0; digit /= 10) {
+                sb.append((char) ('0' + (fraction / digit) % 10));
+            }
+        }
+    }
+}
@@ -12,6 +12,10 @@ public class PlanePhysics {
     private float x;
     private float y;
 
+    // Position at the start of the last update, used for render interpolation
+    private float previousX;
+    private float previousY;
+
     // Velocity
     private float velocityX;
     private float velocityY;
@@ -58,6 +62,8 @@ public class PlanePhysics {
     public PlanePhysics(float x, float y, float radius, float mass) {
         this.x = x;
         this.y = y;
+        this.previousX = x;
+        this.previousY = y;
         this.radius = radius;
         this.mass = mass;
         this.velocityX = 0;
@@ -78,6 +84,10 @@ public class PlanePhysics {
      * @param deltaTime Time since last update in seconds
      */
     public void update(float deltaTime) {
+        // Remember where this step started so rendering can blend between steps
+        previousX = x;
+        previousY = y;
+
         // Apply gravity
         accelY += GRAVITY;
 
@@ -270,6 +280,8 @@ public class PlanePhysics {
     public void reset(float x, float y) {
         this.x = x;
         this.y = y;
+        this.previousX = x;
+        this.previousY = y;
         this.velocityX = 0;
         this.velocityY = 0;
         this.accelX = 0;
@@ -284,10 +296,14 @@ public class PlanePhysics {
     public float getVelocityX() { return velocityX; }
     public float getVelocityY() { return velocityY; }
     public float getRadius() { return radius; }
+    public float getPreviousX() { return previousX; }
+    public float getPreviousY() { return previousY; }
 
     // Setters
     public void setPosition(float x, float y) {
         this.x = x;
         this.y = y;
+        this.previousX = x;
+        this.previousY = y;
     }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.oddghosts.foldedflight.game;
+
+import android.graphics.Bitmap;
+
+/**
+ * How SpriteDiskCache entries and SpritePack pages store bitmap pixels
+ *
+ * Pixels are kept exactly as copyPixelsToBuffer() writes them, with the
+ * bitmap config saved as a small code. Only ARGB_8888 and RGB_565 are
+ * stored; sprites never use other configs.
+ */
+final class RawPixelFormat {
+
+    private RawPixelFormat() {
+    }
+
+    /**
+     * The code saved for config, or -1 if it can't be stored
+     */
+    static int codeOf(Bitmap.Config config) {
+        if (config == Bitmap.Config.ARGB_8888) return 0;
+        if (config == Bitmap.Config.RGB_565) return 1;
+        return -1;
+    }
+
+    /**
+     * The config saved as code, or null if the code is unknown
+     */
+    static Bitmap.Config configOf(int code) {
+        switch (code) {
+            case 0:
+                return Bitmap.Config.ARGB_8888;
+            case 1:
+                return Bitmap.Config.RGB_565;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Bytes of pixels for a bitmap of this size and a config codeOf() accepts
+     */
+    static long byteCount(int width, int height, Bitmap.Config config) {
+        return (long) width * height * (config == Bitmap.Config.RGB_565 ? 2 : 4);
+    }
+}
@@ -0,0 +1,267 @@
+package com.oddghosts.foldedflight.game;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A sprite pre-rendered at every angle it can be drawn at
+ *
+ * Rotating a bitmap on the canvas every frame is the most expensive
+ * per-pixel operation on a software canvas. This renders the sprite once
+ * per angle step across [-maxAngle, maxAngle] on a background thread,
+ * so drawing picks the nearest frame and blits it with no transform.
+ * Frames are cropped to the sprite's visible pixels and share a few pages,
+ * which can be moved to HARDWARE bitmaps once rendered. The source must be
+ * a software bitmap, as its pixels are read back.
+ */
+final class RotatedSpriteCache {
+
+    private static final int MAX_PAGE_SIZE = 2048;
+
+    private final SpriteAtlas.Region source;
+    private final int maxAngle;
+    private final int angleStep;
+    private final boolean hardware;
+
+    // Published once by the build thread
+    private volatile Frame[] frames;
+    private volatile List<Bitmap> pages = Collections.emptyList();
+    private volatile boolean hardwarePages = false;
+    private boolean released = false; // Guarded by this
+
+    // Scratch, render thread only
+    private final RectF destination = new RectF();
+
+    private static final class Frame {
+        final Bitmap page;
+        final Rect bounds;
+
+        Frame(Bitmap page, Rect bounds) {
+            this.page = page;
+            this.bounds = bounds;
+        }
+    }
+
+    /**
+     * @param source Sprite to rotate around its center
+     * @param maxAngle Largest angle either way, in degrees
+     * @param angleStep Degrees between frames
+     * @param hardware Move the finished pages to HARDWARE bitmaps, for a hardware canvas only
+     */
+    RotatedSpriteCache(SpriteAtlas.Region source, int maxAngle, int angleStep, boolean hardware) {
+        this.source = source;
+        this.maxAngle = maxAngle;
+        this.angleStep = angleStep;
+        this.hardware = hardware;
+    }
+
+    /**
+     * Render every frame on a background thread
+     * Until it finishes isReady() is false and callers rotate on the canvas.
+     */
+    void buildAsync() {
+        Thread builder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                build();
+                if (!isReady()) return; // Released before it finished
+                android.util.Log.i("RotatedSpriteCache", "Built " + frames.length + " frames in "
+                        + (System.nanoTime() - start) / 1000000 + " ms, " + getByteCount() / 1024 + " KB");
+            }
+        }, "RotatedSpriteCache");
+        builder.setPriority(Thread.MIN_PRIORITY);
+        builder.start();
+    }
+
+    boolean isReady() {
+        return frames != null;
+    }
+
+    /**
+     * Whether the frames are HARDWARE bitmaps, which a software canvas can't draw
+     * Until the build finishes, whether they were asked to be.
+     */
+    boolean isHardware() {
+        return isReady() ? hardwarePages : hardware;
+    }
+
+    /**
+     * Draw the frame nearest to angle with the sprite's center at (centerX, centerY)
+     */
+    void draw(Canvas canvas, float angle, float centerX, float centerY, Paint paint) {
+        Frame[] current = frames;
+        int index = Math.round((Math.max(-maxAngle, Math.min(maxAngle, angle)) + maxAngle) / angleStep);
+        Frame frame = current[Math.min(index, current.length - 1)];
+
+        // Whole pixels keep the blit 1:1
+        float left = Math.round(centerX - frame.bounds.width() / 2f);
+        float top = Math.round(centerY - frame.bounds.height() / 2f);
+        destination.set(left, top, left + frame.bounds.width(), top + frame.bounds.height());
+        canvas.drawBitmap(frame.page, frame.bounds, destination, paint);
+    }
+
+    /**
+     * Give the pages back to the BitmapPool, now or when the build finishes
+     * Nothing may be drawn from this cache afterwards.
+     */
+    void release() {
+        synchronized (this) {
+            released = true;
+        }
+        for (Bitmap page : pages) {
+            BitmapPool.shared().release(page);
+        }
+    }
+
+    long getByteCount() {
+        long bytes = 0;
+        for (Bitmap page : pages) {
+            bytes += page.getAllocationByteCount();
+        }
+        return bytes;
+    }
+
+    private void build() {
+        Rect visible = findVisibleBounds();
+        float centerX = source.getWidth() / 2f;
+        float centerY = source.getHeight() / 2f;
+
+        // One cell size that fits the visible pixels at every angle
+        float halfWidth = 0;
+        float halfHeight = 0;
+        int frameCount = (2 * maxAngle) / angleStep + 1;
+        for (int i = 0; i < frameCount; i++) {
+            double radians = Math.toRadians(-maxAngle + i * angleStep);
+            float cos = (float) Math.cos(radians);
+            float sin = (float) Math.sin(radians);
+            float[] xs = {visible.left - centerX, visible.right - centerX};
+            float[] ys = {visible.top - centerY, visible.bottom - centerY};
+            for (float x : xs) {
+                for (float y : ys) {
+                    halfWidth = Math.max(halfWidth, Math.abs(x * cos - y * sin));
+                    halfHeight = Math.max(halfHeight, Math.abs(x * sin + y * cos));
+                }
+            }
+        }
+        int cellWidth = (int) Math.ceil(halfWidth * 2) + 2;
+        int cellHeight = (int) Math.ceil(halfHeight * 2) + 2;
+
+        int columns = Math.max(1, MAX_PAGE_SIZE / cellWidth);
+        int rowsPerPage = Math.max(1, MAX_PAGE_SIZE / cellHeight);
+        int framesPerPage = columns * rowsPerPage;
+
+        // Same paint settings drawPlane() rotates with, so frames look the same
+        Paint rotatePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        rotatePaint.setFilterBitmap(false);
+
+        Frame[] built = new Frame[frameCount];
+        List<Bitmap> builtPages = new ArrayList<>();
+        Bitmap page = null;
+        Canvas canvas = null;
+        RectF target = new RectF();
+        for (int i = 0; i < frameCount; i++) {
+            int slot = i % framesPerPage;
+            if (slot == 0) {
+                int remaining = Math.min(framesPerPage, frameCount - i);
+                int pageColumns = Math.min(columns, remaining);
+                int pageRows = (remaining + columns - 1) / columns;
+                page = BitmapPool.shared().acquire(pageColumns * cellWidth, pageRows * cellHeight, Bitmap.Config.ARGB_8888);
+                canvas = new Canvas(page);
+                builtPages.add(page);
+            }
+
+            int left = (slot % columns) * cellWidth;
+            int top = (slot / columns) * cellHeight;
+            float cellCenterX = left + cellWidth / 2f;
+            float cellCenterY = top + cellHeight / 2f;
+
+            canvas.save();
+            canvas.clipRect(left, top, left + cellWidth, top + cellHeight);
+            canvas.rotate(-maxAngle + i * angleStep, cellCenterX, cellCenterY);
+            target.set(cellCenterX - centerX, cellCenterY - centerY,
+                    cellCenterX + centerX, cellCenterY + centerY);
+            canvas.drawBitmap(source.page, source.bounds, target, rotatePaint);
+            canvas.restore();
+
+            built[i] = new Frame(page, new Rect(left, top, left + cellWidth, top + cellHeight));
+        }
+
+        boolean moved = hardware && moveToHardware(built, builtPages);
+
+        synchronized (this) {
+            if (released) {
+                // Released while building: nobody will draw these
+                for (Bitmap builtPage : builtPages) {
+                    BitmapPool.shared().release(builtPage);
+                }
+                return;
+            }
+            pages = builtPages;
+            hardwarePages = moved;
+            frames = built;
+        }
+    }
+
+    /**
+     * Swap the rendered pages for HARDWARE copies and pool the originals
+     * If a copy fails the frames stay in software, which a hardware canvas draws too.
+     * @return Whether the pages moved
+     */
+    private static boolean moveToHardware(Frame[] built, List<Bitmap> builtPages) {
+        List<Bitmap> copies = new ArrayList<>();
+        for (Bitmap page : builtPages) {
+            Bitmap copy = page.copy(Bitmap.Config.HARDWARE, false);
+            if (copy == null) {
+                android.util.Log.w("RotatedSpriteCache", "Could not move frames to hardware bitmaps");
+                return false;
+            }
+            copies.add(copy);
+        }
+
+        long freed = 0;
+        for (int i = 0; i < built.length; i++) {
+            built[i] = new Frame(copies.get(builtPages.indexOf(built[i].page)), built[i].bounds);
+        }
+        for (int i = 0; i < builtPages.size(); i++) {
+            freed += builtPages.get(i).getAllocationByteCount();
+            BitmapPool.shared().release(builtPages.get(i));
+            builtPages.set(i, copies.get(i));
+        }
+        android.util.Log.i("RotatedSpriteCache", "Moved frames to hardware bitmaps, " + freed / 1024 + " KB off the heap");
+        return true;
+    }
+
+    /**
+     * Bounds of the source's non-transparent pixels, relative to its top left
+     */
+    private Rect findVisibleBounds() {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int[] pixels = new int[width * height];
+        source.page.getPixels(pixels, 0, width, source.bounds.left, source.bounds.top, width, height);
+
+        int left = width, top = height, right = 0, bottom = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if ((pixels[y * width + x] >>> 24) != 0) {
+                    left = Math.min(left, x);
+                    top = Math.min(top, y);
+                    right = Math.max(right, x + 1);
+                    bottom = Math.max(bottom, y + 1);
+                }
+            }
+        }
+        if (right <= left || bottom <= top) {
+            return new Rect(0, 0, width, height);
+        }
+        return new Rect(left, top, right, bottom);
+    }
+}
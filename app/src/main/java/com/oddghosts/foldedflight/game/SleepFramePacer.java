@@ -0,0 +1,83 @@
+package com.oddghosts.foldedflight.game;
+
+/**
+ * Frame pacer that sleeps until the next frame slot
+ * Fallback for when vsync callbacks are not available
+ */
+public class SleepFramePacer implements FramePacer {
+
+    private volatile long frameIntervalNanos;
+    private long nextFrameTime;
+    private long frameStartTime;
+    private long skippedFrames = 0L;
+
+    public SleepFramePacer(int targetFps) {
+        this.frameIntervalNanos = 1000000000L / targetFps;
+    }
+
+    @Override
+    public void start() {
+        nextFrameTime = System.nanoTime();
+        skippedFrames = 0L;
+    }
+
+    @Override
+    public long awaitNextFrame() throws InterruptedException {
+        long frameIntervalNanos = this.frameIntervalNanos;
+        long now = System.nanoTime();
+
+        if (now > nextFrameTime + frameIntervalNanos) {
+            // Ran over budget: drop the missed slots instead of rushing to catch up
+            long missed = (now - nextFrameTime) / frameIntervalNanos;
+            skippedFrames += missed;
+            nextFrameTime += missed * frameIntervalNanos;
+        }
+
+        long sleepNanos = nextFrameTime - now;
+        if (sleepNanos > 0) {
+            Thread.sleep(sleepNanos / 1000000L, (int) (sleepNanos % 1000000L));
+        }
+
+        frameStartTime = nextFrameTime;
+        nextFrameTime += frameIntervalNanos;
+        return Math.max(frameStartTime, now);
+    }
+
+    @Override
+    public long getFrameDeadlineNanos() {
+        return frameStartTime + frameIntervalNanos;
+    }
+
+    @Override
+    public long getFrameIntervalNanos() {
+        return frameIntervalNanos;
+    }
+
+    @Override
+    public void setTargetFrameRate(int fps) {
+        frameIntervalNanos = 1000000000L / fps;
+    }
+
+    @Override
+    public void setDisplayRefreshRate(float refreshRate) {
+        // Sleeps don't follow vsync
+    }
+
+    @Override
+    public long getSkippedFrameCount() {
+        return skippedFrames;
+    }
+
+    @Override
+    public void pause() {
+    }
+
+    @Override
+    public void resume() {
+        nextFrameTime = System.nanoTime();
+    }
+
+    @Override
+    public void stop() {
+    }
+}
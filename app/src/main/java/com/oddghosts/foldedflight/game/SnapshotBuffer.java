@@ -0,0 +1,48 @@
+package com.oddghosts.foldedflight.game;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer of world snapshots
+ * The simulation thread fills the write slot and publishes it; the render
+ * thread takes the newest published slot. Each side owns one slot and they
+ * swap through a single atomic, so neither side ever waits on the other.
+ */
+final class SnapshotBuffer {
+
+    private static final int INDEX_MASK = 0x3;
+    private static final int FRESH_BIT = 0x4; // Set when the middle slot holds an unread snapshot
+
+    private final WorldSnapshot[] slots = {
+            new WorldSnapshot(), new WorldSnapshot(), new WorldSnapshot()
+    };
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int writeIndex = 0; // Simulation thread only
+    private int readIndex = 2;  // Render thread only
+
+    /**
+     * Slot the simulation thread may fill (simulation thread only)
+     */
+    WorldSnapshot getWriteSnapshot() {
+        return slots[writeIndex];
+    }
+
+    /**
+     * Hand the filled write slot to the renderer (simulation thread only)
+     */
+    void publish() {
+        int previous = middle.getAndSet(writeIndex | FRESH_BIT);
+        writeIndex = previous & INDEX_MASK;
+    }
+
+    /**
+     * Newest published snapshot, or the last one read if nothing new (render thread only)
+     */
+    WorldSnapshot acquireLatest() {
+        if ((middle.get() & FRESH_BIT) != 0) {
+            int previous = middle.getAndSet(readIndex);
+            readIndex = previous & INDEX_MASK;
+        }
+        return slots[readIndex];
+    }
+}
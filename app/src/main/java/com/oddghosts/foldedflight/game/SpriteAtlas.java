@@ -0,0 +1,390 @@
+package com.oddghosts.foldedflight.game;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gameplay sprites packed into a few shared bitmaps
+ *
+ * Each sprite is decoded once at the size it is drawn at and copied into an
+ * atlas page, so the game holds a handful of bitmaps instead of one per
+ * obstacle and coin, and a hardware canvas uploads each page only once.
+ * Sprites are looked up by name and drawn from their sub-rect.
+ * Once packed, the pages can move to HARDWARE bitmaps that live only on the
+ * GPU; regions follow their page, so sprites already handed out stay valid.
+ */
+final class SpriteAtlas {
+
+    // Safe on every GPU we support; a sprite bigger than this gets its own page
+    private static final int MAX_PAGE_SIZE = 2048;
+    private static final int PADDING = 1; // Keeps neighbours out of each other's edges
+
+    /**
+     * One sprite: the page it lives on and where
+     */
+    static final class Region {
+        volatile Bitmap page; // Swapped when the atlas changes config
+        final Rect bounds;
+        private final RectF destination = new RectF(); // Scratch, render thread only
+
+        Region(Bitmap page, Rect bounds) {
+            this.page = page;
+            this.bounds = bounds;
+        }
+
+        int getWidth() {
+            return bounds.width();
+        }
+
+        int getHeight() {
+            return bounds.height();
+        }
+
+        /**
+         * A software copy of just this sprite, for reading its pixels after
+         * the page moves to hardware; call while the page is still in software
+         */
+        Region copyToSoftware() {
+            Bitmap copy = Bitmap.createBitmap(page, bounds.left, bounds.top, bounds.width(), bounds.height());
+            return new Region(copy, new Rect(0, 0, bounds.width(), bounds.height()));
+        }
+
+        /**
+         * Draw at its packed size with the top left corner at (left, top)
+         */
+        void draw(Canvas canvas, float left, float top, Paint paint) {
+            destination.set(left, top, left + bounds.width(), top + bounds.height());
+            canvas.drawBitmap(page, bounds, destination, paint);
+        }
+    }
+
+    private final Map<String, Region> regions;
+    private volatile List<Bitmap> pages;
+
+    SpriteAtlas(Map<String, Region> regions, List<Bitmap> pages) {
+        this.regions = regions;
+        this.pages = pages;
+    }
+
+    /**
+     * Sprite packed under this name, or null if it wasn't added or failed to load
+     */
+    Region getRegion(String name) {
+        return regions.get(name);
+    }
+
+    int getPageCount() {
+        return pages.size();
+    }
+
+    List<Bitmap> getPages() {
+        return pages;
+    }
+
+    /**
+     * Every sprite by name
+     */
+    Map<String, Region> getRegions() {
+        return Collections.unmodifiableMap(regions);
+    }
+
+    /**
+     * Bytes held by all atlas pages
+     */
+    long getByteCount() {
+        long bytes = 0;
+        for (Bitmap page : pages) {
+            bytes += page.getAllocationByteCount();
+        }
+        return bytes;
+    }
+
+    boolean isHardware() {
+        List<Bitmap> current = pages;
+        return !current.isEmpty() && current.get(0).getConfig() == Bitmap.Config.HARDWARE;
+    }
+
+    /**
+     * Move every page to an immutable HARDWARE bitmap and pool the software ones
+     * Call before any region is drawn. Pages stay in software if the device
+     * can't make hardware bitmaps.
+     * @return Bytes of software pixels freed
+     */
+    long moveToHardware() {
+        if (isHardware()) return 0;
+        List<Bitmap> software = pages;
+        List<Bitmap> hardware = copyPages(software, Bitmap.Config.HARDWARE);
+        if (hardware == null) return 0;
+
+        long freed = getByteCount();
+        swapPages(software, hardware);
+        for (Bitmap page : software) {
+            BitmapPool.shared().release(page);
+        }
+        return freed;
+    }
+
+    /**
+     * Bring hardware pages back to software, for a software canvas (render thread)
+     * The hardware pages are left to the GC, as the last frame may still use them.
+     */
+    void moveToSoftware() {
+        if (!isHardware()) return;
+        List<Bitmap> hardware = pages;
+        List<Bitmap> software = copyPages(hardware, Bitmap.Config.ARGB_8888);
+        if (software != null) {
+            swapPages(hardware, software);
+        }
+    }
+
+    private static List<Bitmap> copyPages(List<Bitmap> from, Bitmap.Config config) {
+        List<Bitmap> copies = new ArrayList<>();
+        for (Bitmap page : from) {
+            Bitmap copy = page.copy(config, config != Bitmap.Config.HARDWARE);
+            if (copy == null) {
+                android.util.Log.w("SpriteAtlas", "Could not copy " + page.getWidth() + "x" + page.getHeight()
+                        + " page to " + config);
+                return null;
+            }
+            copies.add(copy);
+        }
+        return Collections.unmodifiableList(copies);
+    }
+
+    private void swapPages(List<Bitmap> from, List<Bitmap> to) {
+        for (Region region : regions.values()) {
+            region.page = to.get(from.indexOf(region.page));
+        }
+        pages = to;
+    }
+
+    /**
+     * Give the pages back to the BitmapPool; no region may be drawn afterwards
+     */
+    void release() {
+        for (Bitmap page : pages) {
+            BitmapPool.shared().release(page);
+        }
+    }
+
+    /**
+     * Collects sprites and their draw sizes, then packs them into pages
+     */
+    static final class Builder {
+
+        /**
+         * Told after each sprite is decoded, on whichever thread decoded it
+         */
+        interface ProgressListener {
+            void onSpriteDecoded(int decoded, int total);
+        }
+
+        private static final class Entry {
+            final String name;
+            final int resourceId;
+            final int width;
+            final int height;
+            final boolean keepAspect;
+
+            Entry(String name, int resourceId, int width, int height, boolean keepAspect) {
+                this.name = name;
+                this.resourceId = resourceId;
+                this.width = width;
+                this.height = height;
+                this.keepAspect = keepAspect;
+            }
+        }
+
+        private final SpriteLoader loader;
+        private final List<Entry> entries = new ArrayList<>();
+
+        Builder(SpriteLoader loader) {
+            this.loader = loader;
+        }
+
+        /**
+         * Add a sprite scaled to exactly width x height
+         */
+        Builder add(String name, int resourceId, int width, int height) {
+            entries.add(new Entry(name, resourceId, width, height, false));
+            return this;
+        }
+
+        /**
+         * Add a sprite scaled to height, with the width following its aspect ratio
+         */
+        Builder addWithHeight(String name, int resourceId, int height) {
+            entries.add(new Entry(name, resourceId, 0, height, true));
+            return this;
+        }
+
+        int getSpriteCount() {
+            return entries.size();
+        }
+
+        SpriteAtlas build() {
+            return build(null, null);
+        }
+
+        /**
+         * Decode every sprite, in parallel on pool if given, then pack them
+         * @param pool Decodes sprites concurrently, or null to decode on this thread
+         * @param progress Told as each sprite finishes, or null
+         */
+        SpriteAtlas build(ExecutorService pool, final ProgressListener progress) {
+            // Decode everything at its final size first so the layout is known
+            final AtomicInteger decodedCount = new AtomicInteger();
+            final int total = entries.size();
+            Bitmap[] decoded = new Bitmap[total];
+            if (pool == null) {
+                for (int i = 0; i < total; i++) {
+                    decoded[i] = decodeEntry(entries.get(i), decodedCount, progress);
+                }
+            } else {
+                List<Future<Bitmap>> futures = new ArrayList<>();
+                for (final Entry entry : entries) {
+                    futures.add(pool.submit(new Callable<Bitmap>() {
+                        @Override
+                        public Bitmap call() {
+                            return decodeEntry(entry, decodedCount, progress);
+                        }
+                    }));
+                }
+                for (int i = 0; i < total; i++) {
+                    try {
+                        decoded[i] = futures.get(i).get();
+                    } catch (ExecutionException e) {
+                        android.util.Log.w("SpriteAtlas", "Could not load sprite " + entries.get(i).name, e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+
+            // Keep the sprites that loaded, in the order they were added
+            List<String> names = new ArrayList<>();
+            List<Bitmap> sources = new ArrayList<>();
+            List<Rect> sizes = new ArrayList<>();
+            for (int i = 0; i < total; i++) {
+                Bitmap source = decoded[i];
+                if (source == null) continue;
+
+                names.add(entries.get(i).name);
+                sources.add(source);
+                sizes.add(new Rect(0, 0, source.getWidth(), source.getHeight()));
+            }
+
+            // Shelf packing works well when the tallest sprites go first
+            Integer[] order = new Integer[sources.size()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return sizes.get(b).height() - sizes.get(a).height();
+                }
+            });
+
+            // Place sprites on shelves, opening a new page when one fills up
+            List<List<Integer>> pageMembers = new ArrayList<>();
+            List<int[]> pageSizes = new ArrayList<>();
+            Rect[] placed = new Rect[sources.size()];
+            int shelfX = 0, shelfY = 0, shelfHeight = 0, pageWidth = 0;
+            List<Integer> current = null;
+
+            for (int index : order) {
+                Rect size = sizes.get(index);
+                int w = size.width() + PADDING;
+                int h = size.height() + PADDING;
+
+                if (current != null && shelfX + w > MAX_PAGE_SIZE) {
+                    // Next shelf
+                    shelfY += shelfHeight;
+                    shelfX = 0;
+                    shelfHeight = 0;
+                }
+                if (current == null || shelfY + h > MAX_PAGE_SIZE) {
+                    if (current != null) {
+                        pageSizes.add(new int[]{pageWidth, shelfY + shelfHeight});
+                    }
+                    current = new ArrayList<>();
+                    pageMembers.add(current);
+                    shelfX = 0;
+                    shelfY = 0;
+                    shelfHeight = 0;
+                    pageWidth = 0;
+                }
+
+                placed[index] = new Rect(shelfX, shelfY, shelfX + size.width(), shelfY + size.height());
+                current.add(index);
+                shelfX += w;
+                shelfHeight = Math.max(shelfHeight, h);
+                pageWidth = Math.max(pageWidth, shelfX);
+            }
+            if (current != null) {
+                pageSizes.add(new int[]{pageWidth, shelfY + shelfHeight});
+            }
+
+            // Draw each sprite into its page at its final size
+            Map<String, Region> regions = new HashMap<>();
+            List<Bitmap> pages = new ArrayList<>();
+            for (int p = 0; p < pageMembers.size(); p++) {
+                int[] pageSize = pageSizes.get(p);
+                Bitmap page = BitmapPool.shared().acquire(pageSize[0], pageSize[1], Bitmap.Config.ARGB_8888);
+                Canvas canvas = new Canvas(page);
+
+                for (int index : pageMembers.get(p)) {
+                    // Already at its final size, so this is a straight copy
+                    canvas.drawBitmap(sources.get(index), null, placed[index], null);
+                    regions.put(names.get(index), new Region(page, placed[index]));
+                }
+                pages.add(page);
+            }
+
+            // The decode buffers serve the next decode
+            for (Bitmap source : sources) {
+                BitmapPool.shared().release(source);
+            }
+
+            android.util.Log.i("SpriteAtlas", "Packed " + regions.size() + " sprites into "
+                    + pages.size() + " page(s)");
+            return new SpriteAtlas(regions, Collections.unmodifiableList(pages));
+        }
+
+        private Bitmap decodeEntry(Entry entry, AtomicInteger decodedCount, ProgressListener progress) {
+            Bitmap source;
+            try {
+                source = entry.keepAspect
+                        ? loader.decodeToHeight(entry.resourceId, entry.height)
+                        : loader.decode(entry.resourceId, entry.width, entry.height);
+            } catch (Exception e) {
+                source = null;
+            }
+            if (source == null) {
+                android.util.Log.w("SpriteAtlas", "Could not load sprite " + entry.name);
+            }
+
+            int done = decodedCount.incrementAndGet();
+            if (progress != null) {
+                progress.onSpriteDecoded(done, entries.size());
+            }
+            return source;
+        }
+    }
+}
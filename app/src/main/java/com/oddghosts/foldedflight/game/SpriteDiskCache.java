@@ -0,0 +1,307 @@
+package com.oddghosts.foldedflight.game;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.CRC32;
+
+/**
+ * Scaled sprites saved as raw pixels in the app's cache directory
+ *
+ * Decoding a PNG and scaling it is most of the cost of loading a game, and
+ * it gives the same pixels every launch at the same screen size. Each entry
+ * is one file named by sprite and size, holding a header and the bitmap's
+ * pixels exactly as copyPixelsToBuffer() writes them, so loading is a file
+ * read and copyPixelsFromBuffer(). The header carries the app's version and
+ * install time and a CRC of the pixels: entries from another build, or
+ * damaged ones, are deleted and decoded again. Files are written under a
+ * temporary name and renamed, so a crash never leaves half an entry.
+ * Whole atlases are kept the same way as SpritePack files.
+ *
+ * One instance per process. Thread safe.
+ */
+final class SpriteDiskCache {
+
+    private static final int MAGIC = 0x46465350; // "FFSP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+
+    // Least recently used entries are deleted past this
+    private static final long MAX_BYTES = 64L * 1024L * 1024L;
+
+    private static SpriteDiskCache instance;
+
+    private final File directory;
+    private final long appVersion;
+    private final long installTime;
+    private final BitmapPool pool = BitmapPool.shared();
+
+    private SpriteDiskCache(File directory, long appVersion, long installTime) {
+        this.directory = directory;
+        this.appVersion = appVersion;
+        this.installTime = installTime;
+    }
+
+    /**
+     * The process-wide cache, in cacheDir/sprites
+     */
+    static synchronized SpriteDiskCache get(Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            long version = 0;
+            long installTime = 0;
+            try {
+                PackageInfo info = app.getPackageManager().getPackageInfo(app.getPackageName(), 0);
+                version = getVersionCode(info);
+                // Debug builds keep the version code, so a reinstall has to invalidate too
+                installTime = info.lastUpdateTime;
+            } catch (PackageManager.NameNotFoundException e) {
+                android.util.Log.w("SpriteDiskCache", "Could not read app version", e);
+            }
+            instance = new SpriteDiskCache(new File(app.getCacheDir(), "sprites"), version, installTime);
+        }
+        return instance;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static long getVersionCode(PackageInfo info) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            return info.getLongVersionCode();
+        }
+        return info.versionCode;
+    }
+
+    /**
+     * The cached sprite, in a bitmap from the BitmapPool, or null if there
+     * is no valid entry for name at width x height
+     */
+    Bitmap read(String name, int width, int height) {
+        ByteBuffer pixels = readEntry(name, width, height);
+        if (pixels == null) return null;
+
+        Bitmap bitmap = pool.acquire(width, height, RawPixelFormat.configOf(pixels.getInt(24)));
+        pixels.position(HEADER_BYTES);
+        bitmap.copyPixelsFromBuffer(pixels);
+        return bitmap;
+    }
+
+    /**
+     * Fill target with the cached sprite of its size and config
+     * @return Whether there was a valid entry; target is untouched if not
+     */
+    boolean readInto(String name, Bitmap target) {
+        ByteBuffer pixels = readEntry(name, target.getWidth(), target.getHeight());
+        if (pixels == null) return false;
+        if (RawPixelFormat.configOf(pixels.getInt(24)) != target.getConfig()) return false;
+
+        pixels.position(HEADER_BYTES);
+        target.copyPixelsFromBuffer(pixels);
+        return true;
+    }
+
+    /**
+     * Save a sprite under name and its size, replacing any older entry
+     * Failures are logged; the sprite is simply decoded again next time.
+     */
+    void write(String name, Bitmap bitmap) {
+        int configCode = RawPixelFormat.codeOf(bitmap.getConfig());
+        if (configCode < 0) return; // Other configs are never cached
+
+        int pixelBytes = bitmap.getByteCount();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + pixelBytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(HEADER_BYTES);
+        bitmap.copyPixelsToBuffer(buffer);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, pixelBytes);
+        buffer.putInt(0, MAGIC)
+                .putInt(4, FORMAT_VERSION)
+                .putLong(8, appVersion)
+                .putLong(16, installTime)
+                .putInt(24, configCode)
+                .putInt(28, bitmap.getWidth())
+                .putInt(32, bitmap.getHeight())
+                .putInt(36, (int) crc.getValue());
+
+        File file = fileFor(name, bitmap.getWidth(), bitmap.getHeight());
+        File temporary = new File(directory, file.getName() + ".tmp");
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create " + directory);
+            }
+            FileOutputStream out = new FileOutputStream(temporary);
+            try {
+                out.write(buffer.array());
+            } finally {
+                out.close();
+            }
+            if (!temporary.renameTo(file)) {
+                throw new IOException("Could not rename " + temporary);
+            }
+        } catch (IOException e) {
+            android.util.Log.w("SpriteDiskCache", "Could not save " + file.getName(), e);
+            temporary.delete();
+            return;
+        }
+        trim();
+    }
+
+    /**
+     * The atlas saved under key by writePack(), or null (deleting the file)
+     * if there is none or it is stale or damaged
+     */
+    SpriteAtlas readPack(String key) {
+        File file = packFileFor(key);
+        if (!file.isFile()) return null;
+
+        SpriteAtlas atlas;
+        try {
+            atlas = SpritePack.read(file, appVersion, installTime);
+        } catch (IOException e) {
+            android.util.Log.w("SpriteDiskCache", "Could not read " + file.getName(), e);
+            atlas = null;
+        }
+        if (atlas == null) {
+            android.util.Log.w("SpriteDiskCache", "Discarding " + file.getName());
+            file.delete();
+            return null;
+        }
+
+        file.setLastModified(System.currentTimeMillis()); // For trim()
+        return atlas;
+    }
+
+    /**
+     * Save a whole atlas under key, replacing any older pack
+     * Failures are logged; the atlas is simply built again next time.
+     */
+    void writePack(String key, SpriteAtlas atlas) {
+        File file = packFileFor(key);
+        File temporary = new File(directory, file.getName() + ".tmp");
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create " + directory);
+            }
+            SpritePack.write(temporary, atlas, appVersion, installTime);
+            if (!temporary.renameTo(file)) {
+                throw new IOException("Could not rename " + temporary);
+            }
+        } catch (IOException e) {
+            android.util.Log.w("SpriteDiskCache", "Could not save " + file.getName(), e);
+            temporary.delete();
+            return;
+        }
+        trim();
+    }
+
+    /**
+     * The entry's whole file, or null (deleting the file) if it is missing, stale or damaged
+     */
+    private ByteBuffer readEntry(String name, int width, int height) {
+        File file = fileFor(name, width, height);
+        long length = file.length();
+        if (length == 0) return null; // No entry
+
+        String problem = null;
+        ByteBuffer buffer = null;
+        try {
+            FileInputStream in = new FileInputStream(file);
+            try {
+                if (length > Integer.MAX_VALUE) throw new IOException("Too large");
+                FileChannel channel = in.getChannel();
+                buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // Keep reading
+                }
+            } finally {
+                in.close();
+            }
+            problem = validate(buffer, width, height);
+        } catch (IOException e) {
+            problem = e.toString();
+        }
+
+        if (problem != null) {
+            android.util.Log.w("SpriteDiskCache", "Discarding " + file.getName() + ": " + problem);
+            file.delete();
+            return null;
+        }
+
+        file.setLastModified(System.currentTimeMillis()); // For trim()
+        return buffer;
+    }
+
+    /**
+     * Why the entry can't be used, or null if it is good
+     */
+    private String validate(ByteBuffer buffer, int width, int height) {
+        if (buffer.hasRemaining() || buffer.capacity() < HEADER_BYTES) return "truncated";
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) return "unknown format";
+        if (buffer.getLong(8) != appVersion || buffer.getLong(16) != installTime) return "from another build";
+
+        Bitmap.Config config = RawPixelFormat.configOf(buffer.getInt(24));
+        if (config == null) return "unknown config";
+        if (buffer.getInt(28) != width || buffer.getInt(32) != height) return "wrong size";
+        long pixelBytes = RawPixelFormat.byteCount(width, height, config);
+        if (buffer.capacity() != HEADER_BYTES + pixelBytes) return "wrong length";
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, (int) pixelBytes);
+        if ((int) crc.getValue() != buffer.getInt(36)) return "checksum mismatch";
+        return null;
+    }
+
+    /**
+     * Delete the least recently used entries until the directory fits MAX_BYTES
+     */
+    private synchronized void trim() {
+        // Files still being written by other threads are left alone
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return !file.getName().endsWith(".tmp");
+            }
+        });
+        if (files == null) return;
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= MAX_BYTES) return;
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (int i = 0; i < files.length && total > MAX_BYTES; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    private File fileFor(String name, int width, int height) {
+        return new File(directory, name + "_" + width + "x" + height + ".px");
+    }
+
+    private File packFileFor(String key) {
+        return new File(directory, key.replace('/', '_') + ".pack");
+    }
+}
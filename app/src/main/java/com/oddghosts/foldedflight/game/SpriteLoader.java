@@ -0,0 +1,324 @@
+package com.oddghosts.foldedflight.game;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes sprites straight to the size they are drawn at
+ *
+ * Sprite art lives in drawable/ without density variants, and is often
+ * far bigger than its on-screen size. Reading the bounds first lets the
+ * decoder subsample with inSampleSize and, when shrinking, scale the rest
+ * of the way with inDensity/inTargetDensity, so the full-size image is
+ * never allocated. Enlarging is done last with nearest-neighbour scaling
+ * to keep pixel art sharp. Opaque art decodes as RGB_565. Both the decode
+ * and the exact-size copy reuse buffers from the BitmapPool. Sizes and
+ * transparency of shipped images come from the build's SpriteIndex.
+ * Given a SpriteDiskCache, results are saved there and later loads at
+ * the same size skip decoding altogether, unless the caller saves them
+ * some other way (see setSaveToDiskCache()).
+ */
+public class SpriteLoader {
+
+    private final Resources resources;
+    private final BitmapPool pool = BitmapPool.shared();
+    private final SpriteDiskCache diskCache; // null to always decode
+    private volatile boolean saveToDiskCache = true;
+
+    // Totals across every sprite decoded by this loader; sprites may decode in parallel
+    private int spriteCount = 0;
+    private long totalDecodeNanos = 0L;
+    private long totalBytes = 0L;
+    private int diskHits = 0;
+
+    public SpriteLoader(Resources resources) {
+        this(resources, null);
+    }
+
+    SpriteLoader(Resources resources, SpriteDiskCache diskCache) {
+        this.resources = resources;
+        this.diskCache = diskCache;
+    }
+
+    /**
+     * Whether decoded sprites are saved to the disk cache one by one
+     * Cached entries are still read either way.
+     */
+    void setSaveToDiskCache(boolean save) {
+        saveToDiskCache = save;
+    }
+
+    /**
+     * Decode a sprite scaled to height, with the width following its aspect ratio
+     * @return The sprite, or null if it couldn't be decoded
+     */
+    public Bitmap decodeToHeight(int resourceId, int height) {
+        BitmapFactory.Options bounds = readBounds(resourceId);
+        if (bounds == null) return null;
+
+        int width = Math.round(height * (float) bounds.outWidth / bounds.outHeight);
+        return decode(resourceId, bounds, width, height);
+    }
+
+    /**
+     * Decode a sprite scaled to exactly width x height
+     * @return The sprite, or null if it couldn't be decoded
+     */
+    public Bitmap decode(int resourceId, int width, int height) {
+        BitmapFactory.Options bounds = readBounds(resourceId);
+        if (bounds == null) return null;
+        return decode(resourceId, bounds, width, height);
+    }
+
+    private BitmapFactory.Options readBounds(int resourceId) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+
+        // Sizes of the shipped images are known from the build
+        int index = findIndexed(resourceId);
+        if (index >= 0) {
+            bounds.outWidth = SpriteIndex.getWidth(index);
+            bounds.outHeight = SpriteIndex.getHeight(index);
+            return bounds;
+        }
+
+        bounds.inJustDecodeBounds = true;
+        bounds.inScaled = false;
+        BitmapFactory.decodeResource(resources, resourceId, bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            android.util.Log.w("SpriteLoader", "Could not read sprite " + resourceId);
+            return null;
+        }
+        return bounds;
+    }
+
+    private Bitmap decode(int resourceId, BitmapFactory.Options bounds, int width, int height) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+
+        String name = diskCache != null ? resources.getResourceEntryName(resourceId) : null;
+        if (diskCache != null) {
+            Bitmap cached = diskCache.read(name, width, height);
+            if (cached != null) {
+                long readNanos = SystemClock.elapsedRealtimeNanos() - start;
+                synchronized (this) {
+                    spriteCount++;
+                    diskHits++;
+                    totalDecodeNanos += readNanos;
+                    totalBytes += cached.getAllocationByteCount();
+                }
+                android.util.Log.d("SpriteLoader", name + ": " + width + "x" + height
+                        + " from disk cache in " + (readNanos / 1000) + " us");
+                return cached;
+            }
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = hasAlpha(resourceId) ? Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565;
+
+        // Power-of-two subsampling while both sides stay at least the target size
+        int sampleSize = 1;
+        while (bounds.outWidth / (sampleSize * 2) >= width && bounds.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        options.inSampleSize = sampleSize;
+
+        // Shrink the rest of the way inside the decoder
+        int sampledWidth = (bounds.outWidth + sampleSize - 1) / sampleSize;
+        int sampledHeight = (bounds.outHeight + sampleSize - 1) / sampleSize;
+        int decodedWidth = sampledWidth;
+        int decodedHeight = sampledHeight;
+        if (sampledWidth > width) {
+            options.inScaled = true;
+            options.inDensity = sampledWidth;
+            options.inTargetDensity = width;
+            decodedWidth = width;
+            decodedHeight = (int) Math.ceil((double) sampledHeight * width / sampledWidth);
+        } else {
+            options.inScaled = false;
+        }
+
+        // Decode into a pooled buffer when one is big enough; a pixel of slack covers rounding
+        options.inMutable = true;
+        options.inBitmap = pool.acquireForDecode(decodedWidth + 1, decodedHeight + 1, options.inPreferredConfig);
+
+        Bitmap bitmap;
+        try {
+            bitmap = decodeResource(resourceId, options);
+        } catch (OutOfMemoryError e) {
+            android.util.Log.e("SpriteLoader", "Out of memory decoding sprite " + resourceId, e);
+            return null;
+        }
+        if (bitmap == null) return null;
+
+        // Exact final size; nearest neighbour so enlarged pixel art stays crisp
+        if (bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            Bitmap scaled = pool.acquire(width, height, bitmap.getConfig());
+            new Canvas(scaled).drawBitmap(bitmap, null, new Rect(0, 0, width, height), null);
+            pool.release(bitmap);
+            bitmap = scaled;
+        }
+
+        long decodeNanos = SystemClock.elapsedRealtimeNanos() - start;
+        int bytes = bitmap.getAllocationByteCount();
+        synchronized (this) {
+            spriteCount++;
+            totalDecodeNanos += decodeNanos;
+            totalBytes += bytes;
+        }
+
+        android.util.Log.d("SpriteLoader", resources.getResourceEntryName(resourceId)
+                + ": " + bounds.outWidth + "x" + bounds.outHeight
+                + " -> " + width + "x" + height
+                + " (sample " + sampleSize + ", " + bitmap.getConfig() + ") "
+                + (decodeNanos / 1000) + " us, " + (bytes / 1024) + " KB");
+
+        // Saving isn't counted as decode time
+        if (diskCache != null && saveToDiskCache) {
+            diskCache.write(name, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Decode, falling back to a fresh allocation if the decoder rejects options.inBitmap
+     */
+    private Bitmap decodeResource(int resourceId, BitmapFactory.Options options) {
+        Bitmap reuse = options.inBitmap;
+        try {
+            Bitmap bitmap = BitmapFactory.decodeResource(resources, resourceId, options);
+            if (reuse != null && bitmap != reuse) {
+                pool.release(reuse);
+            }
+            return bitmap;
+        } catch (IllegalArgumentException e) {
+            if (reuse == null) throw e;
+            pool.release(reuse);
+            options.inBitmap = null;
+            return BitmapFactory.decodeResource(resources, resourceId, options);
+        }
+    }
+
+    /**
+     * Whether the encoded image can have transparent pixels
+     * Reads only the file header: JPEG and lossy WebP never do, PNG does if
+     * its color type has alpha or it carries a tRNS chunk. Unknown formats
+     * are assumed to have alpha.
+     */
+    public boolean hasAlpha(int resourceId) {
+        int index = findIndexed(resourceId);
+        if (index >= 0) return SpriteIndex.hasAlpha(index);
+
+        InputStream stream = null;
+        try {
+            stream = resources.openRawResource(resourceId);
+            byte[] header = new byte[33]; // PNG signature and IHDR chunk
+            int length = readFully(stream, header);
+
+            // JPEG
+            if (length >= 2 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8) {
+                return false;
+            }
+
+            // PNG: color type is the 10th byte of IHDR, right after the signature
+            if (length >= 26 && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G') {
+                int colorType = header[25] & 0xFF;
+                if (colorType == 4 || colorType == 6) return true;
+                return hasPngTransparencyChunk(stream);
+            }
+
+            // WebP: "VP8 " is lossy without alpha; VP8L and VP8X flag it in their headers
+            if (length >= 25 && header[0] == 'R' && header[8] == 'W' && header[12] == 'V'
+                    && header[13] == 'P' && header[14] == '8') {
+                if (header[15] == ' ') return false;
+                if (header[15] == 'L') return (header[24] & 0x10) != 0; // alpha_is_used, after the 28 size bits
+                if (header[15] == 'X') return (header[20] & 0x10) != 0; // Alpha flag
+            }
+        } catch (IOException | Resources.NotFoundException e) {
+            android.util.Log.w("SpriteLoader", "Could not read header of " + resourceId, e);
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Position of the resource in the build's SpriteIndex, or -1
+     */
+    private int findIndexed(int resourceId) {
+        try {
+            return SpriteIndex.indexOf(resources.getResourceEntryName(resourceId));
+        } catch (Resources.NotFoundException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Scan PNG chunks up to the image data for a tRNS (palette or color-key transparency)
+     * The stream must be positioned right after IHDR.
+     */
+    private static boolean hasPngTransparencyChunk(InputStream stream) throws IOException {
+        byte[] chunk = new byte[8];
+        while (readFully(stream, chunk) == 8) {
+            int chunkLength = readInt(chunk, 0);
+            String type = new String(chunk, 4, 4, "US-ASCII");
+            if (type.equals("tRNS")) return true;
+            if (type.equals("IDAT") || type.equals("IEND") || chunkLength < 0) return false;
+
+            // Skip the data and CRC
+            long skip = chunkLength + 4L;
+            while (skip > 0) {
+                long skipped = stream.skip(skip);
+                if (skipped <= 0) return false;
+                skip -= skipped;
+            }
+        }
+        return false;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static int readFully(InputStream stream, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = stream.read(buffer, total, buffer.length - total);
+            if (read < 0) break;
+            total += read;
+        }
+        return total;
+    }
+
+    public synchronized int getSpriteCount() {
+        return spriteCount;
+    }
+
+    public synchronized long getTotalDecodeNanos() {
+        return totalDecodeNanos;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Sprites that were read from the disk cache instead of decoded
+     */
+    public synchronized int getDiskHitCount() {
+        return diskHits;
+    }
+}
@@ -0,0 +1,214 @@
+package com.oddghosts.foldedflight.game;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A whole sprite atlas saved as one file of raw pixels
+ *
+ * Layout, little endian: a header with the build stamp and counts, a table
+ * of pages (size, config, CRC and offset of its pixels), the regions by
+ * name, then each page's pixels as copyPixelsToBuffer() writes them.
+ * Reading maps the file with FileChannel.map() and copies each page
+ * straight from the mapping into a pooled bitmap with
+ * copyPixelsFromBuffer(), so loading a game needs no PNG inflation, no
+ * scaling and no packing. Anything that doesn't check out makes read()
+ * return null, and the caller builds the atlas the slow way.
+ */
+final class SpritePack {
+
+    private static final int MAGIC = 0x4646504B; // "FFPK"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int PAGE_ENTRY_BYTES = 24;
+
+    private SpritePack() {
+    }
+
+    /**
+     * Map a pack and copy its pages into bitmaps from the BitmapPool
+     * @param appVersion Build stamp the pack must have been written with
+     * @return The atlas, or null if the file is from another build or damaged
+     * @throws IOException If the file can't be read
+     */
+    static SpriteAtlas read(File file, long appVersion, long installTime) throws IOException {
+        MappedByteBuffer map;
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            // The mapping outlives the channel
+            FileChannel channel = in.getChannel();
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            in.close();
+        }
+        map.order(ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            return read(map, appVersion, installTime);
+        } catch (RuntimeException e) {
+            // Offsets or lengths pointing outside the file
+            android.util.Log.w("SpritePack", "Damaged pack " + file.getName(), e);
+            return null;
+        }
+    }
+
+    private static SpriteAtlas read(MappedByteBuffer map, long appVersion, long installTime) {
+        if (map.capacity() < HEADER_BYTES || map.getInt(0) != MAGIC || map.getInt(4) != FORMAT_VERSION
+                || map.getLong(8) != appVersion || map.getLong(16) != installTime) {
+            return null;
+        }
+        int pageCount = map.getInt(24);
+        int regionCount = map.getInt(28);
+        if (pageCount <= 0 || regionCount <= 0) return null;
+
+        // Check every page before allocating any
+        int[] widths = new int[pageCount];
+        int[] heights = new int[pageCount];
+        Bitmap.Config[] configs = new Bitmap.Config[pageCount];
+        long[] offsets = new long[pageCount];
+        CRC32 crc = new CRC32();
+        for (int p = 0; p < pageCount; p++) {
+            int entry = HEADER_BYTES + p * PAGE_ENTRY_BYTES;
+            widths[p] = map.getInt(entry);
+            heights[p] = map.getInt(entry + 4);
+            configs[p] = RawPixelFormat.configOf(map.getInt(entry + 8));
+            offsets[p] = map.getLong(entry + 16);
+            if (configs[p] == null || widths[p] <= 0 || heights[p] <= 0) return null;
+
+            long length = RawPixelFormat.byteCount(widths[p], heights[p], configs[p]);
+            if (offsets[p] < 0 || offsets[p] + length > map.capacity()) return null;
+
+            crc.reset();
+            crc.update(slice(map, offsets[p], length));
+            if ((int) crc.getValue() != map.getInt(entry + 12)) return null;
+        }
+
+        // Regions
+        map.position(HEADER_BYTES + pageCount * PAGE_ENTRY_BYTES);
+        String[] names = new String[regionCount];
+        int[] regionPages = new int[regionCount];
+        Rect[] bounds = new Rect[regionCount];
+        for (int r = 0; r < regionCount; r++) {
+            byte[] name = new byte[map.getShort() & 0xFFFF];
+            map.get(name);
+            names[r] = new String(name, StandardCharsets.UTF_8);
+            regionPages[r] = map.getInt();
+            bounds[r] = new Rect(map.getInt(), map.getInt(), map.getInt(), map.getInt());
+
+            int page = regionPages[r];
+            if (page < 0 || page >= pageCount || bounds[r].left < 0 || bounds[r].top < 0
+                    || bounds[r].right > widths[page] || bounds[r].bottom > heights[page]) {
+                return null;
+            }
+        }
+
+        List<Bitmap> pages = new ArrayList<>();
+        for (int p = 0; p < pageCount; p++) {
+            Bitmap page = BitmapPool.shared().acquire(widths[p], heights[p], configs[p]);
+            page.copyPixelsFromBuffer(slice(map, offsets[p], RawPixelFormat.byteCount(widths[p], heights[p], configs[p])));
+            pages.add(page);
+        }
+        Map<String, SpriteAtlas.Region> regions = new HashMap<>();
+        for (int r = 0; r < regionCount; r++) {
+            regions.put(names[r], new SpriteAtlas.Region(pages.get(regionPages[r]), bounds[r]));
+        }
+        return new SpriteAtlas(regions, Collections.unmodifiableList(pages));
+    }
+
+    /**
+     * Save an atlas, replacing the file's contents
+     * Write to a temporary file and rename it: a reader may have the old one mapped.
+     * @throws IOException If the file can't be written
+     */
+    static void write(File file, SpriteAtlas atlas, long appVersion, long installTime) throws IOException {
+        List<Bitmap> pages = atlas.getPages();
+        Map<String, SpriteAtlas.Region> regions = atlas.getRegions();
+
+        // Region table, to know where the pixels start
+        List<SpriteAtlas.Region> regionList = new ArrayList<>();
+        List<byte[]> names = new ArrayList<>();
+        int regionBytes = 0;
+        for (Map.Entry<String, SpriteAtlas.Region> entry : regions.entrySet()) {
+            byte[] bytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            regionList.add(entry.getValue());
+            names.add(bytes);
+            regionBytes += 2 + bytes.length + 5 * 4;
+        }
+        int tableBytes = HEADER_BYTES + pages.size() * PAGE_ENTRY_BYTES + regionBytes;
+        ByteBuffer table = ByteBuffer.allocate(tableBytes).order(ByteOrder.LITTLE_ENDIAN);
+
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+
+            // Pixels first, since the page table holds their checksums; one buffer fits the largest page
+            int largest = 0;
+            for (Bitmap page : pages) {
+                largest = Math.max(largest, page.getByteCount());
+            }
+            ByteBuffer pixels = ByteBuffer.allocate(largest);
+            CRC32 crc = new CRC32();
+            long offset = tableBytes;
+            table.position(HEADER_BYTES);
+            for (Bitmap page : pages) {
+                int configCode = RawPixelFormat.codeOf(page.getConfig());
+                if (configCode < 0) throw new IOException("Unsupported config " + page.getConfig());
+
+                pixels.clear();
+                page.copyPixelsToBuffer(pixels);
+                pixels.flip();
+                crc.reset();
+                crc.update(pixels.array(), 0, pixels.limit());
+                writeFully(channel, pixels, offset);
+
+                table.putInt(page.getWidth()).putInt(page.getHeight()).putInt(configCode)
+                        .putInt((int) crc.getValue()).putLong(offset);
+                offset += page.getByteCount();
+            }
+
+            for (int i = 0; i < regionList.size(); i++) {
+                SpriteAtlas.Region region = regionList.get(i);
+                byte[] name = names.get(i);
+                table.putShort((short) name.length).put(name)
+                        .putInt(pages.indexOf(region.page))
+                        .putInt(region.bounds.left).putInt(region.bounds.top)
+                        .putInt(region.bounds.right).putInt(region.bounds.bottom);
+            }
+            table.putInt(0, MAGIC).putInt(4, FORMAT_VERSION).putLong(8, appVersion).putLong(16, installTime)
+                    .putInt(24, pages.size()).putInt(28, regionList.size());
+            table.flip();
+            writeFully(channel, table, 0);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer map, long offset, long length) {
+        ByteBuffer slice = map.duplicate();
+        slice.limit((int) (offset + length));
+        slice.position((int) offset);
+        return slice;
+    }
+}
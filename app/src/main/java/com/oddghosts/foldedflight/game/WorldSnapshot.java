@@ -0,0 +1,91 @@
+package com.oddghosts.foldedflight.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything the renderer needs from one simulation pass
+ * Filled only on the simulation thread and handed to the render thread
+ * through SnapshotBuffer, so drawing never reads live game state.
+ * Entity slots are reused between passes to avoid per-frame allocation.
+ */
+final class WorldSnapshot {
+
+    // Plane
+    boolean hasPlane;
+    float planeX;
+    float planeY;
+    float previousPlaneX;
+    float previousPlaneY;
+    float planeVelocityX;
+    float planeVelocityY;
+    float planeSpeed;
+
+    // Camera
+    float cameraX;
+    float previousCameraX;
+
+    // Game state
+    boolean isFlying;
+    boolean isGameOver;
+    int coinCount;
+    float survivalTimeSeconds;
+
+    // When the captured step was due, on the System.nanoTime() clock
+    long stepTimeNanos;
+    boolean isSimulating; // False when the world is frozen and should not be interpolated
+    long sequence; // Grows with every publish, so the renderer can tell new snapshots from drawn ones
+
+    // Entities: only the first *Count slots are live
+    final List<Obstacle> obstacles = new ArrayList<>();
+    int obstacleCount;
+    final List<Coin> coins = new ArrayList<>();
+    int coinSlotCount; // Live coin slots copied, before culling
+
+    void copyPlane(PlanePhysics plane) {
+        hasPlane = plane != null;
+        if (!hasPlane) return;
+
+        planeX = plane.getX();
+        planeY = plane.getY();
+        previousPlaneX = plane.getPreviousX();
+        previousPlaneY = plane.getPreviousY();
+        planeVelocityX = plane.getVelocityX();
+        planeVelocityY = plane.getVelocityY();
+        planeSpeed = plane.getSpeed();
+    }
+
+    void copyObstacles(List<Obstacle> source) {
+        int count = source.size();
+        while (obstacles.size() < count) {
+            obstacles.add(new Obstacle());
+        }
+        for (int i = 0; i < count; i++) {
+            obstacles.get(i).copyFrom(source.get(i));
+        }
+        obstacleCount = count;
+    }
+
+    void copyCoins(List<Coin> source) {
+        int count = source.size();
+        while (coins.size() < count) {
+            coins.add(new Coin());
+        }
+        for (int i = 0; i < count; i++) {
+            coins.get(i).copyFrom(source.get(i));
+        }
+        coinSlotCount = count;
+    }
+
+    float getInterpolatedPlaneX(float alpha) {
+        return previousPlaneX + (planeX - previousPlaneX) * alpha;
+    }
+
+    float getInterpolatedPlaneY(float alpha) {
+        return previousPlaneY + (planeY - previousPlaneY) * alpha;
+    }
+
+    float getInterpolatedCameraX(float alpha) {
+        return previousCameraX + (cameraX - previousCameraX) * alpha;
+    }
+}
@@ -2,7 +2,6 @@ package com.oddghosts.foldedflight.ui;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Rect;
@@ -27,6 +26,7 @@ public class PixelCard extends View {
     private final int borderColor = 0xFF555555;
     private final int shadowColor = 0xFF828282;
     private final int selectedBorderColor = 0xFF3A7AC2; // Blue for selected
+    private final int placeholderColor = 0xFFDDDDDD; // Shown while the image loads
 
     // State
     private boolean isSelected = false;
@@ -34,16 +34,29 @@ public class PixelCard extends View {
     private Bitmap cardImage;
     private int imageResourceId = -1;
 
+    // Resource images come scaled to imageDestRect from the shared ThumbnailLoader
+    private final ThumbnailLoader.Callback thumbnailCallback = new ThumbnailLoader.Callback() {
+        @Override
+        public void onThumbnailLoaded(int resourceId, Bitmap thumbnail) {
+            // Ignore results for an image or size this card no longer shows
+            if (resourceId != imageResourceId || imageDestRect == null
+                    || thumbnail.getWidth() != imageDestRect.width()
+                    || thumbnail.getHeight() != imageDestRect.height()) return;
+            cardImage = thumbnail;
+            invalidate();
+        }
+    };
+
     // Paint objects
     private Paint backgroundPaint;
     private Paint borderPaint;
     private Paint shadowPaint;
     private Paint imagePaint;
+    private Paint placeholderPaint;
 
     // Rectangles
     private Rect cardRect;
     private Rect shadowRect;
-    private Rect imageRect;
     private Rect imageDestRect;
 
     // Click listener
@@ -81,30 +94,53 @@ public class PixelCard extends View {
 
         imagePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
         imagePaint.setFilterBitmap(false); // Disable filtering for pixel art
+
+        placeholderPaint = new Paint();
+        placeholderPaint.setStyle(Paint.Style.FILL);
+        placeholderPaint.setColor(placeholderColor);
     }
 
     /**
      * Set the card image from a drawable resource
+     * It is decoded in the background at the card's size; a placeholder shows until then.
      * Example: card.setImage(R.drawable.city_map);
      */
     public void setImage(int resourceId) {
         this.imageResourceId = resourceId;
-        try {
-            cardImage = BitmapFactory.decodeResource(getResources(), resourceId);
-            invalidate();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        this.cardImage = null;
+        requestThumbnail();
+        invalidate();
     }
 
     /**
      * Set the card image from a Bitmap directly
      */
     public void setImage(Bitmap bitmap) {
+        this.imageResourceId = -1;
         this.cardImage = bitmap;
         invalidate();
     }
 
+    /**
+     * Show the cached thumbnail for the current size, or start loading it
+     * Nothing happens until the card has been laid out.
+     */
+    private void requestThumbnail() {
+        if (imageResourceId == -1 || imageDestRect == null) return;
+        int width = imageDestRect.width();
+        int height = imageDestRect.height();
+        if (width <= 0 || height <= 0) return;
+
+        ThumbnailLoader loader = ThumbnailLoader.get(getContext());
+        Bitmap cached = loader.getCached(imageResourceId, width, height);
+        if (cached != null) {
+            cardImage = cached;
+        } else {
+            cardImage = null;
+            loader.load(imageResourceId, width, height, thumbnailCallback);
+        }
+    }
+
     /**
      * Set the background color of the card using a hex color value
      * Example: card.setCardBackgroundColor(0xFFFF5733);
@@ -126,33 +162,36 @@ public class PixelCard extends View {
         return isSelected;
     }
 
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+
+        int offset = BORDER_THICKNESS;
+        cardRect = new Rect(offset, offset, width - offset, height - offset);
+
+        shadowRect = new Rect(
+                offset + SHADOW_OFFSET,
+                offset + SHADOW_OFFSET,
+                width - offset + SHADOW_OFFSET,
+                height - offset + SHADOW_OFFSET
+        );
+
+        // Image takes up entire card area with padding
+        imageDestRect = new Rect(
+                cardRect.left + PADDING,
+                cardRect.top + PADDING,
+                cardRect.right - PADDING,
+                cardRect.bottom - PADDING
+        );
+
+        // The measured size is known now, so the image can be decoded to fit it
+        requestThumbnail();
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-
-        int width = getWidth();
-        int height = getHeight();
-
-        // Initialize rectangles if needed
-        if (cardRect == null) {
-            int offset = BORDER_THICKNESS;
-            cardRect = new Rect(offset, offset, width - offset, height - offset);
-
-            shadowRect = new Rect(
-                    offset + SHADOW_OFFSET,
-                    offset + SHADOW_OFFSET,
-                    width - offset + SHADOW_OFFSET,
-                    height - offset + SHADOW_OFFSET
-            );
-
-            // Image takes up entire card area with padding
-            imageDestRect = new Rect(
-                    cardRect.left + PADDING,
-                    cardRect.top + PADDING,
-                    cardRect.right - PADDING,
-                    cardRect.bottom - PADDING
-            );
-        }
+        if (cardRect == null) return; // Not laid out yet
 
         // Draw shadow (if not pressed)
         if (!isPressed) {
@@ -173,12 +212,11 @@ public class PixelCard extends View {
         borderPaint.setColor(isSelected ? selectedBorderColor : borderColor);
         drawPixelBorder(canvas, cardRect);
 
-        // Draw image if available
+        // Draw image if available, or a placeholder while it loads
         if (cardImage != null) {
-            if (imageRect == null) {
-                imageRect = new Rect(0, 0, cardImage.getWidth(), cardImage.getHeight());
-            }
-            canvas.drawBitmap(cardImage, imageRect, imageDestRect, imagePaint);
+            canvas.drawBitmap(cardImage, null, imageDestRect, imagePaint);
+        } else if (imageResourceId != -1) {
+            canvas.drawRect(imageDestRect, placeholderPaint);
         }
 
         // Draw selection indicator if selected
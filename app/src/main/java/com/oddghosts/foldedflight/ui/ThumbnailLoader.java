@@ -0,0 +1,172 @@
+package com.oddghosts.foldedflight.ui;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.LruCache;
+
+import com.oddghosts.foldedflight.game.MemoryBudget;
+import com.oddghosts.foldedflight.game.SpriteLoader;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Decodes card images at the size they are drawn, on a background thread
+ *
+ * The menu art is far bigger than the cards showing it, and decoding it
+ * full size on the UI thread made opening the settings screen stutter.
+ * Images are decoded once per resource and size with SpriteLoader, and
+ * kept in a process-wide LRU, so coming back to a screen costs no decodes.
+ * The cache is one evictable MemoryBudget owner. Callbacks run on the
+ * main thread.
+ */
+final class ThumbnailLoader {
+
+    private static ThumbnailLoader instance;
+
+    /**
+     * Called on the main thread once an image is in the cache
+     */
+    interface Callback {
+        void onThumbnailLoaded(int resourceId, Bitmap thumbnail);
+    }
+
+    private final SpriteLoader spriteLoader;
+    private final MemoryBudget budget;
+    private final LruCache<String, Bitmap> cache;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "ThumbnailLoader");
+        }
+    });
+
+    // Decodes queued or running, with everyone waiting on them; main thread only
+    private final Map<String, List<Callback>> pending = new HashMap<>();
+
+    private final MemoryBudget.Owner cacheMemory = new MemoryBudget.Owner() {
+        @Override
+        public long getBitmapBytes() {
+            return cache.size();
+        }
+
+        @Override
+        public long evict() {
+            long bytes = cache.size();
+            cache.evictAll();
+            return bytes;
+        }
+    };
+
+    private ThumbnailLoader(Context context) {
+        spriteLoader = new SpriteLoader(context.getResources());
+        budget = MemoryBudget.get(context);
+
+        // Menu art is small once scaled; a sixteenth of the heap holds every card many times over
+        cache = new LruCache<String, Bitmap>((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 16)) {
+            @Override
+            protected int sizeOf(String key, Bitmap thumbnail) {
+                return thumbnail.getAllocationByteCount();
+            }
+        };
+        budget.register("Thumbnails", cacheMemory, true);
+    }
+
+    /**
+     * The process-wide loader
+     */
+    static synchronized ThumbnailLoader get(Context context) {
+        if (instance == null) {
+            instance = new ThumbnailLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * The image scaled to width x height if it is already cached, otherwise null
+     */
+    Bitmap getCached(int resourceId, int width, int height) {
+        Bitmap thumbnail = cache.get(key(resourceId, width, height));
+        if (thumbnail != null) {
+            budget.touch(cacheMemory);
+        }
+        return thumbnail;
+    }
+
+    /**
+     * Decode the image scaled to width x height in the background, unless
+     * it is cached or already being decoded; call from the main thread
+     * @param callback Told when it is ready; not called if decoding fails
+     */
+    void load(final int resourceId, final int width, final int height, Callback callback) {
+        final String key = key(resourceId, width, height);
+        Bitmap cached = cache.get(key);
+        if (cached != null) {
+            callback.onThumbnailLoaded(resourceId, cached);
+            return;
+        }
+
+        List<Callback> waiting = pending.get(key);
+        if (waiting != null) {
+            waiting.add(callback);
+            return;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(callback);
+        pending.put(key, waiting);
+
+        decoder.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap thumbnail = decode(resourceId, width, height);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        finish(key, resourceId, thumbnail);
+                    }
+                });
+            }
+        });
+    }
+
+    private Bitmap decode(int resourceId, int width, int height) {
+        try {
+            return spriteLoader.decode(resourceId, width, height);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            android.util.Log.w("ThumbnailLoader", "Could not decode " + resourceId + " at " + width + "x" + height, e);
+            return null;
+        }
+    }
+
+    private void finish(String key, int resourceId, Bitmap thumbnail) {
+        List<Callback> waiting = pending.remove(key);
+        if (thumbnail == null) return;
+
+        cache.put(key, thumbnail);
+        budget.touch(cacheMemory);
+        budget.enforce();
+        if (waiting == null) return;
+        for (Callback callback : waiting) {
+            callback.onThumbnailLoaded(resourceId, thumbnail);
+        }
+    }
+
+    private static String key(int resourceId, int width, int height) {
+        return resourceId + ":" + width + "x" + height;
+    }
+}
@@ -0,0 +1,118 @@
+package com.oddghosts.foldedflight.game;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Percentiles of the log-bucket histogram, especially at bucket edges
+ * Each test records one large sample so the max doesn't hide the bucket bound.
+ */
+public class FrameTimingHistogramTest {
+
+    private static final long SLOW = 1000000000L; // 1 s, far above every bucket tested
+
+    /**
+     * Reported p50 when nanos is the lower of two samples
+     */
+    private static long bucketBoundFor(long nanos) {
+        FrameTimingHistogram histogram = new FrameTimingHistogram();
+        histogram.record(nanos);
+        histogram.record(SLOW);
+        return histogram.getPercentileNanos(50);
+    }
+
+    @Test
+    public void empty_reportsZero() {
+        FrameTimingHistogram histogram = new FrameTimingHistogram();
+        assertEquals(0, histogram.getP50Nanos());
+        assertEquals(0, histogram.getP99Nanos());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getMeanNanos());
+    }
+
+    @Test
+    public void belowFourMicros_oneBucketPerMicro() {
+        assertEquals(1000, bucketBoundFor(0));
+        assertEquals(1000, bucketBoundFor(999));
+        assertEquals(2000, bucketBoundFor(1000));
+        assertEquals(4000, bucketBoundFor(3000));
+        assertEquals(4000, bucketBoundFor(3999));
+    }
+
+    @Test
+    public void octaveEdges_startNewBuckets() {
+        // [4, 5) us is the first quarter-octave bucket
+        assertEquals(5000, bucketBoundFor(4000));
+        // [7, 8) us ends the octave, [8, 10) us starts the next
+        assertEquals(8000, bucketBoundFor(7999));
+        assertEquals(10000, bucketBoundFor(8000));
+        // [896, 1024) us and [1024, 1280) us
+        assertEquals(1024000, bucketBoundFor(1023999));
+        assertEquals(1280000, bucketBoundFor(1024000));
+    }
+
+    @Test
+    public void bucketBound_isWithinAQuarterOfTheSample() {
+        for (long micros = 4; micros < 100000; micros = micros * 3 / 2 + 1) {
+            long nanos = micros * 1000;
+            long bound = bucketBoundFor(nanos);
+            assertTrue(nanos + " reported as " + bound, bound > nanos);
+            assertTrue(nanos + " reported as " + bound, bound <= nanos * 5 / 4);
+        }
+    }
+
+    @Test
+    public void bound_isCappedAtSlowestSample() {
+        FrameTimingHistogram histogram = new FrameTimingHistogram();
+        histogram.record(8000);
+        assertEquals(8000, histogram.getP50Nanos());
+        assertEquals(8000, histogram.getP99Nanos());
+    }
+
+    @Test
+    public void rank_atPercentileEdge() {
+        FrameTimingHistogram histogram = new FrameTimingHistogram();
+        for (int i = 0; i < 95; i++) {
+            histogram.record(1000000); // [896, 1024) us
+        }
+        for (int i = 0; i < 5; i++) {
+            histogram.record(10000000);
+        }
+
+        // The 95th of 100 samples is still a fast one; the 96th is slow
+        assertEquals(1024000, histogram.getP95Nanos());
+        assertEquals(10000000, histogram.getPercentileNanos(96));
+        assertEquals(10000000, histogram.getP99Nanos());
+        assertEquals(1024000, histogram.getPercentileNanos(0));
+        assertEquals(10000000, histogram.getPercentileNanos(100));
+    }
+
+    @Test
+    public void outOfRange_clampedToEnds() {
+        FrameTimingHistogram histogram = new FrameTimingHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getP50Nanos());
+
+        // Past the last bucket: reported as the real max
+        long huge = 100L * SLOW;
+        histogram.record(huge);
+        assertEquals(huge, histogram.getPercentileNanos(100));
+        assertEquals(2, histogram.getCount());
+    }
+
+    @Test
+    public void reset_clearsSamples() {
+        FrameTimingHistogram histogram = new FrameTimingHistogram();
+        histogram.record(5000);
+        histogram.record(SLOW);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getP50Nanos());
+        assertEquals(0, histogram.getMaxNanos());
+        histogram.record(3000);
+        assertEquals(3000, histogram.getP50Nanos());
+    }
+}
@@ -0,0 +1,126 @@
+package com.oddghosts.foldedflight.game;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Publish/acquire ordering of the simulation-to-render triple buffer
+ */
+public class SnapshotBufferTest {
+
+    private static void fill(WorldSnapshot snapshot, long sequence) {
+        snapshot.sequence = sequence;
+        snapshot.planeX = sequence;
+        snapshot.planeY = -sequence;
+    }
+
+    @Test
+    public void acquire_beforePublish_isNotTheWriteSlot() {
+        SnapshotBuffer buffer = new SnapshotBuffer();
+        WorldSnapshot read = buffer.acquireLatest();
+        assertNotSame(buffer.getWriteSnapshot(), read);
+        assertSame(read, buffer.acquireLatest());
+    }
+
+    @Test
+    public void publish_thenAcquire_returnsPublishedSnapshot() {
+        SnapshotBuffer buffer = new SnapshotBuffer();
+        WorldSnapshot written = buffer.getWriteSnapshot();
+        fill(written, 1);
+        buffer.publish();
+
+        assertSame(written, buffer.acquireLatest());
+        assertEquals(1, buffer.acquireLatest().sequence);
+    }
+
+    @Test
+    public void publish_givesWriterAFreeSlot() {
+        SnapshotBuffer buffer = new SnapshotBuffer();
+        WorldSnapshot first = buffer.getWriteSnapshot();
+        buffer.publish();
+        WorldSnapshot read = buffer.acquireLatest();
+
+        WorldSnapshot next = buffer.getWriteSnapshot();
+        assertNotSame(first, next);
+        assertNotSame(read, next);
+    }
+
+    @Test
+    public void severalPublishes_acquireReturnsNewest() {
+        SnapshotBuffer buffer = new SnapshotBuffer();
+        for (long sequence = 1; sequence <= 5; sequence++) {
+            fill(buffer.getWriteSnapshot(), sequence);
+            buffer.publish();
+        }
+        assertEquals(5, buffer.acquireLatest().sequence);
+    }
+
+    @Test
+    public void acquire_withNothingNew_returnsSameSnapshot() {
+        SnapshotBuffer buffer = new SnapshotBuffer();
+        fill(buffer.getWriteSnapshot(), 1);
+        buffer.publish();
+        WorldSnapshot read = buffer.acquireLatest();
+
+        assertSame(read, buffer.acquireLatest());
+        assertEquals(1, buffer.acquireLatest().sequence);
+    }
+
+    @Test
+    public void acquiredSnapshot_isNeverHandedBackToWriter() {
+        SnapshotBuffer buffer = new SnapshotBuffer();
+        for (long sequence = 1; sequence <= 100; sequence++) {
+            fill(buffer.getWriteSnapshot(), sequence);
+            buffer.publish();
+            if (sequence % 3 == 0) {
+                WorldSnapshot read = buffer.acquireLatest();
+                assertEquals(sequence, read.sequence);
+                assertNotSame(read, buffer.getWriteSnapshot());
+            }
+        }
+    }
+
+    @Test
+    public void concurrentReader_seesWholeSnapshotsInOrder() throws Exception {
+        final SnapshotBuffer buffer = new SnapshotBuffer();
+        final long last = 200000;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (long sequence = 1; sequence <= last; sequence++) {
+                    fill(buffer.getWriteSnapshot(), sequence);
+                    buffer.publish();
+                }
+            }
+        });
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    long previous = 0;
+                    while (previous < last) {
+                        WorldSnapshot read = buffer.acquireLatest();
+                        assertTrue("went back from " + previous + " to " + read.sequence, read.sequence >= previous);
+                        assertEquals(read.sequence, (long) read.planeX);
+                        assertEquals(-read.sequence, (long) read.planeY);
+                        previous = read.sequence;
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        });
+
+        reader.start();
+        writer.start();
+        writer.join();
+        reader.join(10000);
+        assertFalse("reader never saw the last snapshot", reader.isAlive());
+        if (failure.get() != null) throw new AssertionError(failure.get());
+    }
+}